@@ -0,0 +1,416 @@
+"""
+Local Documentum stand-in for performance testing.
+
+Implements the JSON contracts spoken by DocumentumClient:
+  POST /fetch   {"document_link_id": "..."}          -> {"filename": "...", "content": "<base64>"}
+  POST /upload  {"filename": "...", "content": "..."} -> {"document_link_id": "..."}
+  POST /upload_batch {"documents": [{"filename": "...", "content": "..."}, ...]}
+                                                     -> {"document_link_ids": ["...", ...]} (same order)
+  POST /upload_chunked/start  {"filename": "...", "size": N, "part_size": P} -> {"upload_id": "..."}
+  POST /upload_chunked/part   {"upload_id": "...", "part_number": i, "content": "..."} -> {"part_number": i, "size": n}
+  POST /upload_chunked/commit {"upload_id": "...", "parts": n, "size": N}  -> {"document_link_id": "..."}
+  POST /upload_chunked/abort  {"upload_id": "..."}                          -> {}
+Parts (numbered from 0) may arrive in any order and be sent again; commit
+checks that every part is there and the sizes add up. With --no-chunked the
+chunked endpoints answer 404.
+
+Binary transport: a fetch with Accept: application/octet-stream is answered
+with the raw document and its filename in Content-Disposition. /upload takes
+a raw application/octet-stream body with the filename in Content-Disposition,
+and /upload_chunked/part one with X-Upload-Id and X-Part-Number headers.
+With --no-binary fetches are answered in JSON and binary uploads with 415.
+
+Latency, error rate and bandwidth are configurable so that changes to the
+unzipper service can be measured reproducibly without the shared instance.
+
+Request bodies may be gzip or deflate encoded (Content-Encoding) and sent
+chunked; with --no-request-compression they are answered 415 instead.
+Responses of at least --compress-min-bytes are gzipped for clients sending
+Accept-Encoding: gzip.
+
+Usage:
+  python3 documentum_stub.py --port 8000 --seed test_payload.zip \
+      --latency-dist lognormal --latency-ms 40 --latency-jitter-ms 20 \
+      --error-rate 0.01 --bandwidth-mbps 200
+
+Seeded files are registered under their base name without extension
+(test_payload.zip -> document_link_id "test_payload").
+"""
+import argparse
+import urllib.parse
+import base64
+import gzip
+import json
+import os
+import random
+import threading
+import time
+import uuid
+import zlib
+from http.server import BaseHTTPRequestHandler, ThreadingHTTPServer
+
+CHUNK_SIZE = 64 * 1024
+
+
+class Store:
+    def __init__(self, keep_uploads):
+        self.keep_uploads = keep_uploads
+        self.documents = {}
+        self.lock = threading.Lock()
+        self.stats = {}
+        self.sessions = {}
+
+    def put(self, document_link_id, filename, content):
+        with self.lock:
+            # Uploaded content is only kept when asked for, so long runs do not grow the heap
+            self.documents[document_link_id] = (filename, content if self.keep_uploads else None)
+
+    def seed(self, document_link_id, filename, content):
+        with self.lock:
+            self.documents[document_link_id] = (filename, content)
+
+    def get(self, document_link_id):
+        with self.lock:
+            return self.documents.get(document_link_id)
+
+    def start_session(self, filename, size):
+        upload_id = uuid.uuid4().hex
+        with self.lock:
+            self.sessions[upload_id] = {"filename": filename, "size": size, "parts": {}}
+        return upload_id
+
+    def put_part(self, upload_id, part_number, content):
+        with self.lock:
+            session = self.sessions.get(upload_id)
+            if session is None:
+                return False
+            # Only the length is needed to commit unless the content is kept
+            session["parts"][part_number] = content if self.keep_uploads else len(content)
+            return True
+
+    def end_session(self, upload_id):
+        with self.lock:
+            return self.sessions.pop(upload_id, None)
+
+    def record(self, endpoint, status, request_bytes, response_bytes, elapsed):
+        with self.lock:
+            s = self.stats.setdefault(endpoint, {"requests": 0, "errors": 0, "bytes_in": 0,
+                                                 "bytes_out": 0, "total_ms": 0.0})
+            s["requests"] += 1
+            if status >= 400:
+                s["errors"] += 1
+            s["bytes_in"] += request_bytes
+            s["bytes_out"] += response_bytes
+            s["total_ms"] += elapsed * 1000.0
+
+    def snapshot(self):
+        with self.lock:
+            return {"documents": len(self.documents), "endpoints": json.loads(json.dumps(self.stats))}
+
+
+class Behaviour:
+    def __init__(self, args):
+        self.dist = args.latency_dist
+        self.latency_ms = args.latency_ms
+        self.jitter_ms = args.latency_jitter_ms
+        self.error_rate = args.error_rate
+        self.error_status = args.error_status
+        self.bandwidth_bps = args.bandwidth_mbps * 1024 * 1024 / 8 if args.bandwidth_mbps > 0 else 0
+
+    def delay(self):
+        base, jitter = self.latency_ms, self.jitter_ms
+        if self.dist == "fixed":
+            ms = base
+        elif self.dist == "uniform":
+            ms = random.uniform(max(0.0, base - jitter), base + jitter)
+        elif self.dist == "normal":
+            ms = random.gauss(base, jitter)
+        elif self.dist == "exponential":
+            ms = random.expovariate(1.0 / base) if base > 0 else 0
+        else:  # lognormal: long right tail, closest to the shared instance
+            if base <= 0:
+                ms = 0
+            else:
+                sigma = (jitter / base) if jitter > 0 else 0.5
+                ms = random.lognormvariate(0, sigma) * base
+        if ms > 0:
+            time.sleep(ms / 1000.0)
+
+    def should_fail(self):
+        return self.error_rate > 0 and random.random() < self.error_rate
+
+    def throttle(self, nbytes, started):
+        # Sleep until the transfer would have taken nbytes / bandwidth seconds
+        if self.bandwidth_bps <= 0:
+            return
+        expected = nbytes / self.bandwidth_bps
+        elapsed = time.time() - started
+        if expected > elapsed:
+            time.sleep(expected - elapsed)
+
+
+class StubHandler(BaseHTTPRequestHandler):
+    protocol_version = "HTTP/1.1"
+    store = None
+    behaviour = None
+    no_batch = False
+    no_chunked = False
+    binary = True
+    request_compression = True
+    compress_min_bytes = 0  # 0 = responses are never compressed
+
+    def log_message(self, fmt, *args):
+        if self.server.verbose:
+            super().log_message(fmt, *args)
+
+    def do_GET(self):
+        if self.path == "/stats":
+            self._send_json(200, self.store.snapshot())
+        else:
+            self._send_json(404, {"error": "not found"})
+
+    def do_POST(self):
+        started = time.time()
+        endpoint = self.path.split("?", 1)[0]
+        handler = {"/fetch": self._fetch, "/upload": self._upload}.get(endpoint)
+        if endpoint == "/upload_batch" and not self.no_batch:
+            handler = self._upload_batch
+        if endpoint.startswith("/upload_chunked/") and not self.no_chunked:
+            handler = {"/upload_chunked/start": self._chunked_start, "/upload_chunked/part": self._chunked_part,
+                       "/upload_chunked/commit": self._chunked_commit,
+                       "/upload_chunked/abort": self._chunked_abort}.get(endpoint)
+        raw = self.headers.get("Content-Type", "").split(";", 1)[0].strip().lower() == "application/octet-stream"
+        if raw and handler is not None:
+            handler = {"/upload": self._upload_binary, "/upload_chunked/part": self._chunked_part_binary}.get(endpoint)
+        body = self._read_body()
+        encoding = self.headers.get("Content-Encoding", "identity").strip().lower()
+        received = len(body)
+        if raw and (handler is None or not self.binary):
+            status, sent = self._send_json(415, {"error": "application/octet-stream not accepted here"})
+        elif handler is None:
+            status, sent = self._send_json(404, {"error": "not found"})
+        elif encoding != "identity" and (not self.request_compression or encoding not in ("gzip", "deflate")):
+            status, sent = self._send_json(415, {"error": "unsupported Content-Encoding " + encoding})
+        elif self.behaviour.should_fail():
+            self.behaviour.delay()
+            status, sent = self._send_json(self.behaviour.error_status, {"error": "injected failure"})
+        else:
+            self.behaviour.delay()
+            try:
+                if encoding == "gzip":
+                    body = gzip.decompress(body)
+                elif encoding == "deflate":
+                    body = zlib.decompress(body)
+                status, sent = handler(body)
+            except (ValueError, KeyError, OSError, zlib.error) as e:
+                status, sent = self._send_json(400, {"error": str(e)})
+        # Bytes as they went over the wire, compressed or not
+        self.store.record(endpoint, status, received, sent, time.time() - started)
+
+    def _fetch(self, body):
+        request = json.loads(body)
+        document_link_id = request["document_link_id"]
+        doc = self.store.get(document_link_id)
+        if doc is None or doc[1] is None:
+            return self._send_json(404, {"error": "unknown document_link_id " + document_link_id})
+        filename, content = doc
+        if self.binary and "application/octet-stream" in self.headers.get("Accept", "").lower():
+            return self._send_bytes(200, content, "application/octet-stream",
+                                    {"Content-Disposition": content_disposition(filename)})
+        return self._send_json(200, {"filename": filename,
+                                     "content": base64.b64encode(content).decode("ascii")})
+
+    def _upload(self, body):
+        request = json.loads(body)
+        content = base64.b64decode(request["content"])
+        document_link_id = uuid.uuid4().hex[:16]
+        self.store.put(document_link_id, request.get("filename", document_link_id), content)
+        return self._send_json(200, {"document_link_id": document_link_id})
+
+    def _upload_binary(self, body):
+        document_link_id = uuid.uuid4().hex[:16]
+        filename = disposition_filename(self.headers.get("Content-Disposition", "")) or document_link_id
+        self.store.put(document_link_id, filename, body)
+        return self._send_json(200, {"document_link_id": document_link_id})
+
+    def _upload_batch(self, body):
+        request = json.loads(body)
+        document_link_ids = []
+        for document in request["documents"]:
+            content = base64.b64decode(document["content"])
+            document_link_id = uuid.uuid4().hex[:16]
+            self.store.put(document_link_id, document.get("filename", document_link_id), content)
+            document_link_ids.append(document_link_id)
+        return self._send_json(200, {"document_link_ids": document_link_ids})
+
+    def _chunked_start(self, body):
+        request = json.loads(body)
+        upload_id = self.store.start_session(request.get("filename"), int(request["size"]))
+        return self._send_json(200, {"upload_id": upload_id})
+
+    def _chunked_part(self, body):
+        request = json.loads(body)
+        part_number = int(request["part_number"])
+        content = base64.b64decode(request["content"])
+        if not self.store.put_part(request["upload_id"], part_number, content):
+            return self._send_json(404, {"error": "unknown upload_id " + request["upload_id"]})
+        return self._send_json(200, {"part_number": part_number, "size": len(content)})
+
+    def _chunked_part_binary(self, body):
+        upload_id = self.headers["X-Upload-Id"]
+        part_number = int(self.headers["X-Part-Number"])
+        if not self.store.put_part(upload_id, part_number, body):
+            return self._send_json(404, {"error": "unknown upload_id " + upload_id})
+        return self._send_json(200, {"part_number": part_number, "size": len(body)})
+
+    def _chunked_commit(self, body):
+        request = json.loads(body)
+        session = self.store.end_session(request["upload_id"])
+        if session is None:
+            return self._send_json(404, {"error": "unknown upload_id " + request["upload_id"]})
+        parts = [session["parts"].get(i) for i in range(int(request["parts"]))]
+        if any(p is None for p in parts):
+            missing = [i for i, p in enumerate(parts) if p is None]
+            return self._send_json(400, {"error": "missing parts " + str(missing)})
+        size = sum(p if isinstance(p, int) else len(p) for p in parts)
+        if size != int(request["size"]) or size != session["size"]:
+            return self._send_json(400, {"error": "parts add up to %d bytes, expected %s" % (size, request["size"])})
+        document_link_id = uuid.uuid4().hex[:16]
+        content = b"".join(parts) if self.store.keep_uploads else None
+        self.store.put(document_link_id, session["filename"] or document_link_id, content)
+        return self._send_json(200, {"document_link_id": document_link_id})
+
+    def _chunked_abort(self, body):
+        self.store.end_session(json.loads(body)["upload_id"])
+        return self._send_json(200, {})
+
+    def _read_body(self):
+        if self.headers.get("Transfer-Encoding", "").lower() == "chunked":
+            return self._read_chunked()
+        length = int(self.headers.get("Content-Length", 0))
+        started = time.time()
+        chunks, remaining = [], length
+        while remaining > 0:
+            chunk = self.rfile.read(min(CHUNK_SIZE, remaining))
+            if not chunk:
+                break
+            chunks.append(chunk)
+            remaining -= len(chunk)
+            self.behaviour.throttle(length - remaining, started)
+        return b"".join(chunks)
+
+    def _read_chunked(self):
+        started = time.time()
+        chunks, received = [], 0
+        while True:
+            size = int(self.rfile.readline().split(b";", 1)[0].strip(), 16)
+            if size == 0:
+                # Trailer section, up to the empty line
+                while self.rfile.readline() not in (b"\r\n", b"\n", b""):
+                    pass
+                break
+            chunks.append(self.rfile.read(size))
+            self.rfile.readline()
+            received += size
+            self.behaviour.throttle(received, started)
+        return b"".join(chunks)
+
+    def _send_json(self, status, payload):
+        data = json.dumps(payload).encode("utf-8")
+        accepted = self.headers.get("Accept-Encoding", "").lower()
+        if self.compress_min_bytes > 0 and len(data) >= self.compress_min_bytes and "gzip" in accepted:
+            return self._send_bytes(status, gzip.compress(data, compresslevel=1), "application/json",
+                                    {"Content-Encoding": "gzip"})
+        return self._send_bytes(status, data, "application/json")
+
+    def _send_bytes(self, status, data, content_type, headers=None):
+        self.send_response(status)
+        self.send_header("Content-Type", content_type)
+        self.send_header("Content-Length", str(len(data)))
+        for name, value in (headers or {}).items():
+            self.send_header(name, value)
+        self.end_headers()
+        started = time.time()
+        view = memoryview(data)
+        for offset in range(0, len(data), CHUNK_SIZE):
+            self.wfile.write(view[offset:offset + CHUNK_SIZE])
+            self.behaviour.throttle(offset + CHUNK_SIZE, started)
+        return status, len(data)
+
+
+def content_disposition(filename):
+    # Plain ASCII fallback plus the RFC 6266 UTF-8 form
+    ascii_name = filename.encode("ascii", "replace").decode("ascii").replace("\\", "_").replace('"', "_")
+    return "attachment; filename=\"%s\"; filename*=UTF-8''%s" % (ascii_name, urllib.parse.quote(filename, safe=""))
+
+
+def disposition_filename(header):
+    filename = None
+    for param in header.split(";")[1:]:
+        name, _, value = param.strip().partition("=")
+        name = name.strip().lower()
+        if name == "filename*" and "''" in value:
+            return urllib.parse.unquote(value.split("''", 1)[1], encoding=value.split("'", 1)[0] or "utf-8")
+        if name == "filename":
+            filename = value.strip().strip('"')
+    return filename
+
+
+def main():
+    parser = argparse.ArgumentParser(description="Local Documentum stand-in")
+    parser.add_argument("--host", default="0.0.0.0")
+    parser.add_argument("--port", type=int, default=8000)
+    parser.add_argument("--seed", action="append", default=[],
+                        help="file (or directory of files) to register for /fetch; repeatable")
+    parser.add_argument("--latency-dist", default="fixed",
+                        choices=["fixed", "uniform", "normal", "lognormal", "exponential"])
+    parser.add_argument("--latency-ms", type=float, default=0.0, help="base/median latency per call")
+    parser.add_argument("--latency-jitter-ms", type=float, default=0.0, help="spread of the distribution")
+    parser.add_argument("--error-rate", type=float, default=0.0, help="fraction of calls answered with an error")
+    parser.add_argument("--error-status", type=int, default=503)
+    parser.add_argument("--bandwidth-mbps", type=float, default=0.0, help="per-connection cap, 0 = unlimited")
+    parser.add_argument("--keep-uploads", action="store_true",
+                        help="keep uploaded content so it can be fetched back (costs memory)")
+    parser.add_argument("--no-batch", action="store_true",
+                        help="answer /upload_batch with 404, like a Documentum without the batch endpoint")
+    parser.add_argument("--no-chunked", action="store_true",
+                        help="answer /upload_chunked/* with 404, like a Documentum without chunked uploads")
+    parser.add_argument("--no-binary", action="store_true",
+                        help="ignore Accept: application/octet-stream on /fetch and answer binary uploads with 415")
+    parser.add_argument("--no-request-compression", action="store_true",
+                        help="answer compressed request bodies with 415, like a Documentum without Content-Encoding support")
+    parser.add_argument("--compress-min-bytes", type=int, default=1024,
+                        help="gzip responses at least this large when the client accepts it; 0 = never")
+    parser.add_argument("--verbose", action="store_true")
+    args = parser.parse_args()
+
+    store = Store(args.keep_uploads)
+    for seed in args.seed:
+        paths = [os.path.join(seed, f) for f in sorted(os.listdir(seed))] if os.path.isdir(seed) else [seed]
+        for path in paths:
+            with open(path, "rb") as f:
+                document_link_id = os.path.splitext(os.path.basename(path))[0]
+                store.seed(document_link_id, os.path.basename(path), f.read())
+                print(f"Seeded {path} as document_link_id '{document_link_id}'")
+
+    StubHandler.store = store
+    StubHandler.behaviour = Behaviour(args)
+    StubHandler.no_batch = args.no_batch
+    StubHandler.no_chunked = args.no_chunked
+    StubHandler.binary = not args.no_binary
+    StubHandler.request_compression = not args.no_request_compression
+    StubHandler.compress_min_bytes = args.compress_min_bytes
+    server = ThreadingHTTPServer((args.host, args.port), StubHandler)
+    server.daemon_threads = True
+    server.verbose = args.verbose
+    print(f"Documentum stand-in listening on {args.host}:{args.port} "
+          f"(latency={args.latency_dist}:{args.latency_ms}ms±{args.latency_jitter_ms}, "
+          f"error_rate={args.error_rate}, bandwidth={args.bandwidth_mbps or 'unlimited'} Mbps)")
+    try:
+        server.serve_forever()
+    except KeyboardInterrupt:
+        pass
+
+
+if __name__ == "__main__":
+    main()
@@ -31,5 +31,6 @@ echo "DOCUMENTUM_FETCH_URL: $DOCUMENTUM_FETCH_URL"
 echo "DOCUMENTUM_UPLOAD_URL: $DOCUMENTUM_UPLOAD_URL"
 echo "UNZIP_UPLOAD_THREADS: $UNZIP_UPLOAD_THREADS"
 
-# Start the Spring Boot application
-exec java -jar app.jar
+# Start the Spring Boot application from the unpacked class path with the AppCDS archive built into the
+# image (the JVM ignores the archive if it does not match). Set SPRING_PROFILES_ACTIVE=faststart for lazy startup.
+exec java -XX:SharedArchiveFile=app.jsa -Xshare:auto -cp "application.jar:lib/*" com.unzipper.UnzipperApplication
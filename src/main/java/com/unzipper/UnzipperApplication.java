@@ -2,12 +2,16 @@ package com.unzipper;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
 
 @SpringBootApplication
 public class UnzipperApplication {
 
 	public static void main(String[] args) {
-		SpringApplication.run(UnzipperApplication.class, args);
+		SpringApplication application = new SpringApplication(UnzipperApplication.class);
+		// Keep the startup steps for the startup report and /actuator/startup
+		application.setApplicationStartup(new BufferingApplicationStartup(4096));
+		application.run(args);
 	}
 
 }
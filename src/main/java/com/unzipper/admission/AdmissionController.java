@@ -0,0 +1,174 @@
+package com.unzipper.admission;
+
+import com.unzipper.storage.TempStorageManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+
+/**
+ * Decides whether an unzip request may start, so that a burst queues or is shed instead of every
+ * request slowing down together until the process runs out of heap or temp disk.
+ *
+ * Admission is two-step. {@link #admit} takes one of a fixed number of processing slots; callers beyond
+ * that wait in a bounded queue and are turned away with 429 when the queue is full or the wait times out.
+ * A slot is also withheld (503) while heap usage after the last GC is above the configured fraction.
+ * Once the archive is on disk, {@link AdmissionTicket#reserve} charges its zipped size plus the inflated
+ * size from its central directory to a shared in-flight byte budget, and checks that the temp disk has
+ * room for what the request will extract at once; it waits for headroom and answers 503 if none frees up.
+ */
+@Component
+public class AdmissionController {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdmissionController.class);
+
+    // Heap and disk headroom are not signalled when they free up, so waiters re-check periodically
+    private static final long HEADROOM_POLL_MS = 100;
+
+    private final boolean enabled;
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final long queueTimeoutMillis;
+    private final long maxInFlightBytes;
+    private final double heapMaxFraction;
+    private final long retryAfterSeconds;
+    private final long inFlightWindowBytes;
+    private final TempStorageManager tempStorage;
+
+    // Guarded by 'this'
+    private int active;
+    private int queued;
+    private long inFlightBytes;
+
+    public AdmissionController(TempStorageManager tempStorage,
+                               @Value("${unzip.admission.enabled}") boolean enabled,
+                               @Value("${unzip.admission.max-concurrent}") int maxConcurrent,
+                               @Value("${unzip.admission.max-queued}") int maxQueued,
+                               @Value("${unzip.admission.queue-timeout-ms}") long queueTimeoutMillis,
+                               @Value("${unzip.admission.max-inflight-bytes}") long maxInFlightBytes,
+                               @Value("${unzip.admission.heap-max-fraction}") double heapMaxFraction,
+                               @Value("${unzip.admission.retry-after-seconds}") long retryAfterSeconds,
+                               @Value("${unzip.inflight.max-bytes}") long inFlightWindowBytes) {
+        this.tempStorage = tempStorage;
+        this.enabled = enabled;
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+        this.maxQueued = Math.max(0, maxQueued);
+        this.queueTimeoutMillis = queueTimeoutMillis;
+        this.maxInFlightBytes = maxInFlightBytes;
+        this.heapMaxFraction = heapMaxFraction;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.inFlightWindowBytes = inFlightWindowBytes;
+        logger.info("Admission control: {}", enabled
+                ? maxConcurrent + " concurrent, " + maxQueued + " queued, " + maxInFlightBytes
+                        + " in-flight bytes, heap limit " + heapMaxFraction
+                : "disabled");
+    }
+
+    /**
+     * Take a processing slot, waiting in the queue if all are busy.
+     */
+    public AdmissionTicket admit() {
+        if (!enabled) {
+            return AdmissionTicket.unlimited();
+        }
+        long deadline = System.currentTimeMillis() + queueTimeoutMillis;
+        synchronized (this) {
+            if (active >= maxConcurrent && queued >= maxQueued) {
+                throw new AdmissionRejectedException(HttpStatus.TOO_MANY_REQUESTS, retryAfterSeconds,
+                        "Too many unzip requests: " + active + " running, " + queued + " queued");
+            }
+            queued++;
+            try {
+                while (active >= maxConcurrent || heapExhausted()) {
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0) {
+                        if (active < maxConcurrent) {
+                            throw new AdmissionRejectedException(HttpStatus.SERVICE_UNAVAILABLE, retryAfterSeconds,
+                                    "Heap usage after GC is above " + heapMaxFraction + " of the maximum");
+                        }
+                        throw new AdmissionRejectedException(HttpStatus.TOO_MANY_REQUESTS, retryAfterSeconds,
+                                "Timed out waiting for an unzip slot: " + active + " running");
+                    }
+                    awaitHeadroom(remaining);
+                }
+                active++;
+            } finally {
+                queued--;
+            }
+        }
+        return new AdmissionTicket(this);
+    }
+
+    synchronized void reserve(AdmissionTicket ticket, long zippedBytes, long inflatedBytes) {
+        long bytes = Math.max(zippedBytes, 0) + Math.max(inflatedBytes, 0);
+        // Uploaded entries are deleted as they go, so at most one in-flight window of them is on disk at once
+        long diskBytes = Math.min(Math.max(inflatedBytes, 0), inFlightWindowBytes);
+        long deadline = System.currentTimeMillis() + queueTimeoutMillis;
+        // A request larger than the whole budget is still admitted when it is the only one
+        while ((inFlightBytes > 0 && inFlightBytes + bytes > maxInFlightBytes)
+                || tempStorage.availableDiskBytes() < diskBytes) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                throw new AdmissionRejectedException(HttpStatus.SERVICE_UNAVAILABLE, retryAfterSeconds,
+                        "No headroom for an archive of " + zippedBytes + " bytes (" + inflatedBytes + " inflated): "
+                                + inFlightBytes + " of " + maxInFlightBytes + " in-flight bytes in use, "
+                                + tempStorage.availableDiskBytes() + " bytes of temp disk available");
+            }
+            awaitHeadroom(remaining);
+        }
+        inFlightBytes += bytes;
+        ticket.bytes += bytes;
+    }
+
+    synchronized void release(AdmissionTicket ticket) {
+        if (ticket.closed) {
+            return;
+        }
+        ticket.closed = true;
+        inFlightBytes -= ticket.bytes;
+        ticket.bytes = 0;
+        active--;
+        notifyAll();
+    }
+
+    // Guarded by 'this'
+    private void awaitHeadroom(long remaining) {
+        try {
+            wait(Math.min(remaining, HEADROOM_POLL_MS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AdmissionRejectedException(HttpStatus.SERVICE_UNAVAILABLE, retryAfterSeconds,
+                    "Interrupted while waiting for admission");
+        }
+    }
+
+    /**
+     * Heap in use after the most recent collection of each heap pool, as a fraction of the maximum heap.
+     * Live data is what matters here; garbage that the next GC will reclaim is not headroom pressure.
+     */
+    private boolean heapExhausted() {
+        if (heapMaxFraction >= 1) {
+            return false;
+        }
+        long used = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() != MemoryType.HEAP) {
+                continue;
+            }
+            MemoryUsage usage = pool.getCollectionUsage();
+            if (usage == null) {
+                usage = pool.getUsage();
+            }
+            if (usage != null) {
+                used += usage.getUsed();
+            }
+        }
+        return used > heapMaxFraction * Runtime.getRuntime().maxMemory();
+    }
+}
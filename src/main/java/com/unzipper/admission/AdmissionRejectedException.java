@@ -0,0 +1,30 @@
+package com.unzipper.admission;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * Thrown when a request is turned away by the {@link AdmissionController}: 429 when the service is busy
+ * (all slots taken and the queue full or timed out), 503 when heap, temp disk or in-flight byte headroom
+ * ran out. Nothing has been started for the request, so clients should retry after {@link #getRetryAfterSeconds()}.
+ */
+public class AdmissionRejectedException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final HttpStatus status;
+    private final long retryAfterSeconds;
+
+    public AdmissionRejectedException(HttpStatus status, long retryAfterSeconds, String message) {
+        super(message);
+        this.status = status;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public HttpStatus getStatus() {
+        return status;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,40 @@
+package com.unzipper.admission;
+
+/**
+ * One admitted request. Holds a processing slot and, once {@link #reserve} has been called, the request's
+ * share of the in-flight byte budget. Close it (try-with-resources or finally) to give both back.
+ */
+public class AdmissionTicket implements AutoCloseable {
+
+    private final AdmissionController controller;
+
+    // Guarded by 'controller'
+    long bytes;
+    boolean closed;
+
+    AdmissionTicket(AdmissionController controller) {
+        this.controller = controller;
+    }
+
+    /**
+     * Reserve headroom for an archive that is now on disk: {@code zippedBytes} plus {@code inflatedBytes}
+     * as estimated from its central directory. Waits while the service is over budget and throws
+     * {@link AdmissionRejectedException} (503) if no room frees up in time.
+     */
+    public void reserve(long zippedBytes, long inflatedBytes) {
+        if (controller != null) {
+            controller.reserve(this, zippedBytes, inflatedBytes);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (controller != null) {
+            controller.release(this);
+        }
+    }
+
+    static AdmissionTicket unlimited() {
+        return new AdmissionTicket(null);
+    }
+}
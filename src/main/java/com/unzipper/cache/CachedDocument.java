@@ -0,0 +1,38 @@
+package com.unzipper.cache;
+
+import java.nio.file.Path;
+
+/**
+ * A document served from the fetch cache: either held in heap (hot tier) or as a local file (disk tier).
+ */
+public class CachedDocument {
+    private final String filename;
+    private final long size;
+    private final byte[] content;
+    private final Path file;
+
+    private CachedDocument(String filename, long size, byte[] content, Path file) {
+        this.filename = filename;
+        this.size = size;
+        this.content = content;
+        this.file = file;
+    }
+
+    public static CachedDocument inMemory(String filename, byte[] content) {
+        return new CachedDocument(filename, content.length, content, null);
+    }
+
+    public static CachedDocument onDisk(String filename, Path file, long size) {
+        return new CachedDocument(filename, size, null, file);
+    }
+
+    public String getFilename() { return filename; }
+
+    public long getSize() { return size; }
+
+    public boolean isInMemory() { return content != null; }
+
+    public byte[] getContent() { return content; }
+
+    public Path getFile() { return file; }
+}
@@ -0,0 +1,237 @@
+package com.unzipper.cache;
+
+import com.unzipper.client.DocumentumClient;
+import com.unzipper.util.SingleFlight;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Read-through cache in front of {@link DocumentumClient}, keyed by documentLinkId.
+ *
+ * Two LRU tiers, each with a byte budget: a small in-heap tier for hot small documents and a local
+ * disk tier for everything else. Concurrent misses for the same id are coalesced into one fetch.
+ * Evicted files are deleted after a grace period so a response that is about to stream them
+ * (e.g. via sendfile) never loses its file.
+ */
+@Component
+public class DocumentCache implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(DocumentCache.class);
+
+    private final DocumentumClient documentumClient;
+    private final boolean enabled;
+    private final long memoryMaxBytes;
+    private final long memoryMaxEntryBytes;
+    private final long diskMaxBytes;
+    private final long evictionGraceMillis;
+    private final Path diskDir;
+
+    // Access-ordered maps give LRU iteration order; both are guarded by 'this'
+    private final LinkedHashMap<String, CachedDocument> memoryTier = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<String, CachedDocument> diskTier = new LinkedHashMap<>(16, 0.75f, true);
+    private long memoryBytes;
+    private long diskBytes;
+
+    private final SingleFlight<String, CachedDocument> misses = new SingleFlight<>();
+    private final AtomicLong fileSequence = new AtomicLong();
+    private final ScheduledExecutorService reaper;
+
+    public DocumentCache(DocumentumClient documentumClient,
+                         @Value("${documentum.cache.enabled}") boolean enabled,
+                         @Value("${documentum.cache.memory.max-bytes}") long memoryMaxBytes,
+                         @Value("${documentum.cache.memory.max-entry-bytes}") long memoryMaxEntryBytes,
+                         @Value("${documentum.cache.disk.max-bytes}") long diskMaxBytes,
+                         @Value("${documentum.cache.disk.dir}") String diskDir,
+                         @Value("${documentum.cache.disk.eviction-grace-ms}") long evictionGraceMillis) {
+        this.documentumClient = documentumClient;
+        this.enabled = enabled;
+        this.memoryMaxBytes = memoryMaxBytes;
+        this.memoryMaxEntryBytes = memoryMaxEntryBytes;
+        this.diskMaxBytes = diskMaxBytes;
+        this.evictionGraceMillis = evictionGraceMillis;
+        this.diskDir = Paths.get(diskDir);
+        this.reaper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "document-cache-reaper");
+            t.setDaemon(true);
+            return t;
+        });
+
+        // Also used with the cache disabled, as the landing place of every fetch
+        try {
+            Files.createDirectories(this.diskDir);
+            // Entries are not indexed across restarts, so anything left behind is garbage
+            purgeDirectory();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to prepare document cache directory " + diskDir, e);
+        }
+        if (enabled) {
+            logger.info("Document cache enabled: memory {} bytes (max entry {}), disk {} bytes at {}",
+                    memoryMaxBytes, memoryMaxEntryBytes, diskMaxBytes, this.diskDir);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        reaper.shutdownNow();
+        purgeDirectory();
+    }
+
+    /**
+     * Return the document for the given id, fetching it from Documentum only on a miss.
+     */
+    public CachedDocument get(String documentLinkId) {
+        if (!enabled) {
+            return fetch(documentLinkId);
+        }
+        CachedDocument cached = lookup(documentLinkId);
+        if (cached != null) {
+            return cached;
+        }
+        return misses.execute(documentLinkId, () -> {
+            // A previous leader may have filled the cache between our lookup and registering
+            CachedDocument filled = lookup(documentLinkId);
+            return filled != null ? filled : fetchAndStore(documentLinkId);
+        });
+    }
+
+    private CachedDocument lookup(String documentLinkId) {
+        CachedDocument onDisk;
+        synchronized (this) {
+            CachedDocument hot = memoryTier.get(documentLinkId);
+            if (hot != null) {
+                logger.debug("Document cache memory hit for {}", documentLinkId);
+                return hot;
+            }
+            onDisk = diskTier.get(documentLinkId);
+        }
+        if (onDisk == null) {
+            return null;
+        }
+        logger.debug("Document cache disk hit for {}", documentLinkId);
+        if (onDisk.getSize() <= memoryMaxEntryBytes) {
+            try {
+                CachedDocument promoted = CachedDocument.inMemory(onDisk.getFilename(), Files.readAllBytes(onDisk.getFile()));
+                putMemory(documentLinkId, promoted);
+                return promoted;
+            } catch (NoSuchFileException e) {
+                return null;
+            } catch (IOException e) {
+                logger.warn("Failed to promote cached document {} to memory", documentLinkId, e);
+            }
+        }
+        return onDisk;
+    }
+
+    /**
+     * Fetch without caching: the document lands on disk like a cache miss and is deleted after the grace period.
+     */
+    private CachedDocument fetch(String documentLinkId) {
+        CachedDocument onDisk = download(documentLinkId);
+        scheduleDelete(onDisk.getFile());
+        return onDisk;
+    }
+
+    private CachedDocument fetchAndStore(String documentLinkId) {
+        CachedDocument onDisk = download(documentLinkId);
+        long size = onDisk.getSize();
+        if (size > diskMaxBytes) {
+            // Larger than the whole tier: serve it once, then let it go
+            scheduleDelete(onDisk.getFile());
+            return onDisk;
+        }
+        putDisk(documentLinkId, onDisk);
+
+        if (size <= memoryMaxEntryBytes) {
+            try {
+                CachedDocument hot = CachedDocument.inMemory(onDisk.getFilename(), Files.readAllBytes(onDisk.getFile()));
+                putMemory(documentLinkId, hot);
+                return hot;
+            } catch (IOException e) {
+                logger.warn("Failed to load cached document {} into memory", documentLinkId, e);
+            }
+        }
+        return onDisk;
+    }
+
+    /**
+     * Stream the document from Documentum into a new file under the cache directory.
+     */
+    private CachedDocument download(String documentLinkId) {
+        Path target = diskDir.resolve("doc_" + fileSequence.incrementAndGet() + ".bin");
+        try {
+            String filename = documentumClient.fetchDocumentToFile(documentLinkId, target);
+            return CachedDocument.onDisk(filename, target, Files.size(target));
+        } catch (IOException e) {
+            scheduleDelete(target);
+            throw new UncheckedIOException("Failed to fetch document " + documentLinkId, e);
+        } catch (RuntimeException e) {
+            scheduleDelete(target);
+            throw e;
+        }
+    }
+
+    private synchronized void putMemory(String documentLinkId, CachedDocument doc) {
+        CachedDocument previous = memoryTier.put(documentLinkId, doc);
+        if (previous != null) {
+            memoryBytes -= previous.getSize();
+        }
+        memoryBytes += doc.getSize();
+        Iterator<Map.Entry<String, CachedDocument>> it = memoryTier.entrySet().iterator();
+        while (memoryBytes > memoryMaxBytes && it.hasNext()) {
+            memoryBytes -= it.next().getValue().getSize();
+            it.remove();
+        }
+    }
+
+    private synchronized void putDisk(String documentLinkId, CachedDocument doc) {
+        CachedDocument previous = diskTier.put(documentLinkId, doc);
+        if (previous != null) {
+            diskBytes -= previous.getSize();
+            scheduleDelete(previous.getFile());
+        }
+        diskBytes += doc.getSize();
+        Iterator<Map.Entry<String, CachedDocument>> it = diskTier.entrySet().iterator();
+        while (diskBytes > diskMaxBytes && it.hasNext()) {
+            CachedDocument evicted = it.next().getValue();
+            diskBytes -= evicted.getSize();
+            it.remove();
+            scheduleDelete(evicted.getFile());
+        }
+    }
+
+    private void scheduleDelete(Path file) {
+        reaper.schedule(() -> {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                logger.warn("Failed to delete evicted cache file {}", file, e);
+            }
+        }, evictionGraceMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void purgeDirectory() {
+        try (Stream<Path> files = Files.list(diskDir)) {
+            files.forEach(f -> f.toFile().delete());
+        } catch (IOException e) {
+            logger.warn("Error purging document cache directory {}", diskDir, e);
+        }
+    }
+}
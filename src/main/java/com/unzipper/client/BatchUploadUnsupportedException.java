@@ -0,0 +1,13 @@
+package com.unzipper.client;
+
+/**
+ * The Documentum batch upload endpoint is not configured or not available; upload documents one by one.
+ */
+public class BatchUploadUnsupportedException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public BatchUploadUnsupportedException(String message) {
+        super(message);
+    }
+}
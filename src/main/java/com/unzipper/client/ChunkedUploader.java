@@ -0,0 +1,224 @@
+package com.unzipper.client;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.unzipper.diagnostics.DocumentumCallEvent;
+import com.unzipper.io.ParallelBase64;
+import com.unzipper.io.SpilledFile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Chunked upload of large files: the file is split into fixed-size parts that are uploaded in parallel,
+ * each on its own pooled connection and retried on its own, and the upload is then committed as one
+ * document. A failed part costs one part, not the whole file, and a large file is no longer limited to
+ * the throughput of one connection.
+ *
+ * Protocol, under documentum.upload.chunked.url:
+ * POST /start {"filename", "size", "part_size"} -> {"upload_id"};
+ * POST /part {"upload_id", "part_number", "content"} (parts numbered from 0, content in Base64), or
+ * with the binary transport the raw part as application/octet-stream with X-Upload-Id and X-Part-Number headers;
+ * POST /commit {"upload_id", "parts", "size"} -> {"document_link_id"};
+ * POST /abort {"upload_id"} when a part fails for good. Start, parts and commit are retried after connection
+ * errors, 429 and 5xx. A start answered 404/405/501 switches chunked
+ * uploads off and the caller falls back to a single upload.
+ */
+class ChunkedUploader {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChunkedUploader.class);
+
+    private final WebClient webClient;
+    private final ObjectMapper objectMapper;
+    private final ParallelBase64 base64;
+    private final String url;
+    private final long minBytes;
+    private final long partBytes;
+    private final int parallelism;
+    private final int partRetries;
+    private final Duration retryBackoff;
+    private final long mmapMinBytes;
+    private volatile boolean supported;
+
+    ChunkedUploader(WebClient webClient, ObjectMapper objectMapper, ParallelBase64 base64, String url, long minBytes,
+                    long partBytes, int parallelism, int partRetries, long retryBackoffMillis, long mmapMinBytes) {
+        if (partBytes < 1 || partBytes > Integer.MAX_VALUE / 2) {
+            throw new IllegalArgumentException("documentum.upload.chunked.part-bytes must be between 1 and 1GB, was: " + partBytes);
+        }
+        this.webClient = webClient;
+        this.objectMapper = objectMapper;
+        this.base64 = base64;
+        this.url = url != null && url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+        this.minBytes = minBytes;
+        this.partBytes = partBytes;
+        this.parallelism = Math.max(1, parallelism);
+        this.partRetries = partRetries;
+        this.retryBackoff = Duration.ofMillis(retryBackoffMillis);
+        this.mmapMinBytes = mmapMinBytes;
+        this.supported = url != null && !url.isBlank();
+    }
+
+    /**
+     * Whether a file of this many bytes goes up in parts.
+     */
+    boolean applies(long size) {
+        return supported && size >= minBytes && size > partBytes;
+    }
+
+    /**
+     * Upload the file in parts and return its document_link_id, or empty if Documentum has no chunked
+     * upload endpoint and the file should be sent whole.
+     */
+    Optional<String> upload(Path file, String fileName, String parentDocumentLinkId, boolean binary) throws IOException {
+        try (SpilledFile source = SpilledFile.open(file, mmapMinBytes)) {
+            long size = source.size();
+            int parts = (int) ((size + partBytes - 1) / partBytes);
+
+            Map<String, Object> start = new LinkedHashMap<>();
+            start.put("filename", fileName);
+            start.put("size", size);
+            start.put("part_size", partBytes);
+            String uploadId;
+            try {
+                uploadId = call("/start", start).retryWhen(retry()).block().get("upload_id").asText();
+            } catch (WebClientResponseException e) {
+                if (isUnsupported(e.getStatusCode())) {
+                    supported = false;
+                    logger.warn("Documentum chunked upload unavailable ({}), sending large files whole", e.getStatusCode());
+                    return Optional.empty();
+                }
+                throw e;
+            }
+            logger.debug("Uploading {} ({} bytes) in {} parts as {}", fileName, size, parts, uploadId);
+            String uploadIdJson = objectMapper.writeValueAsString(uploadId);
+
+            try {
+                // Parts in any order, at most 'parallelism' at once; each retried on its own. A part failing
+                // for good cancels the others, whose encodes may still be reading when the source closes
+                // below; SpilledFile unmaps only once they are done
+                Flux.range(0, parts)
+                        .flatMap(part -> uploadPart(source, uploadId, uploadIdJson, part, size, binary, fileName, parentDocumentLinkId)
+                                .retryWhen(retry()), parallelism)
+                        .then()
+                        .block();
+
+                Map<String, Object> commit = new LinkedHashMap<>();
+                commit.put("upload_id", uploadId);
+                commit.put("parts", parts);
+                commit.put("size", size);
+                // Commits are keyed by upload_id, so a commit that got no answer can be sent again
+                return Optional.of(call("/commit", commit).retryWhen(retry()).block().get("document_link_id").asText());
+            } catch (RuntimeException e) {
+                abort(uploadId);
+                throw e;
+            }
+        }
+    }
+
+    private Mono<Void> uploadPart(SpilledFile source, String uploadId, String uploadIdJson, int part, long size,
+                                  boolean binary, String fileName, String parentDocumentLinkId) {
+        return Mono.defer(() -> {
+            long offset = part * partBytes;
+            long length = Math.min(partBytes, size - offset);
+            DocumentumCallEvent event = new DocumentumCallEvent("upload-part", fileName, parentDocumentLinkId, 1);
+            event.binary = binary;
+            WebClient.RequestBodySpec request = webClient.post().uri(url + "/part");
+            long contentLength;
+            Flux<DataBuffer> body;
+            if (binary) {
+                request = request.contentType(MediaType.APPLICATION_OCTET_STREAM)
+                        .header("X-Upload-Id", uploadId)
+                        .header("X-Part-Number", String.valueOf(part));
+                contentLength = length;
+                body = DocumentumClient.readRaw(source, offset, length);
+            } else {
+                byte[] head = ("{\"upload_id\": " + uploadIdJson + ", \"part_number\": " + part + ", \"content\": \"")
+                        .getBytes(StandardCharsets.UTF_8);
+                byte[] tail = "\"}".getBytes(StandardCharsets.UTF_8);
+                request = request.contentType(MediaType.APPLICATION_JSON);
+                contentLength = head.length + 4 * ((length + 2) / 3) + tail.length;
+                body = Flux.concat(
+                        Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(head)),
+                        base64.encode(source, offset, length),
+                        Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(tail)));
+            }
+
+            // One event per attempt, so retried parts show up as such
+            event.requestBytes = contentLength;
+            event.begin();
+            return request
+                    .contentLength(contentLength)
+                    .body(BodyInserters.fromDataBuffers(body))
+                    .retrieve()
+                    .toBodilessEntity()
+                    .doOnNext(response -> event.status = response.getStatusCodeValue())
+                    .doOnError(Exception.class, event::failed)
+                    .doFinally(signal -> event.commit())
+                    .then();
+        });
+    }
+
+    private void abort(String uploadId) {
+        try {
+            call("/abort", Map.of("upload_id", uploadId)).block();
+        } catch (Exception e) {
+            logger.debug("Failed to abort chunked upload {}: {}", uploadId, e.getMessage());
+        }
+    }
+
+    private Mono<JsonNode> call(String path, Object request) {
+        return webClient.post()
+                .uri(url + path)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(request)
+                .retrieve()
+                .bodyToMono(String.class)
+                .map(response -> {
+                    try {
+                        return objectMapper.readTree(response);
+                    } catch (IOException e) {
+                        throw new IllegalStateException("Invalid chunked upload response from Documentum", e);
+                    }
+                });
+    }
+
+    private Retry retry() {
+        return Retry.backoff(partRetries, retryBackoff)
+                .filter(ChunkedUploader::isTransient)
+                .onRetryExhaustedThrow((spec, signal) -> signal.failure());
+    }
+
+    /** Connection errors, 429 and 5xx; anything else would fail again. */
+    private static boolean isTransient(Throwable t) {
+        if (t instanceof WebClientRequestException) {
+            return true;
+        }
+        if (t instanceof WebClientResponseException) {
+            HttpStatus status = ((WebClientResponseException) t).getStatusCode();
+            return status == HttpStatus.TOO_MANY_REQUESTS || (status.is5xxServerError() && !isUnsupported(status));
+        }
+        return false;
+    }
+
+    private static boolean isUnsupported(HttpStatus status) {
+        return status == HttpStatus.NOT_FOUND || status == HttpStatus.METHOD_NOT_ALLOWED || status == HttpStatus.NOT_IMPLEMENTED;
+    }
+}
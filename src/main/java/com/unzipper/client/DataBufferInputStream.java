@@ -0,0 +1,88 @@
+package com.unzipper.client;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.PooledDataBuffer;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Blocking InputStream view over a streamed response body.
+ *
+ * Buffers are pulled with a small prefetch and released as soon as they are consumed,
+ * so a multi-hundred-MB body never needs to be aggregated in memory. Closing the stream
+ * cancels the underlying exchange.
+ */
+class DataBufferInputStream extends InputStream {
+
+    private static final int PREFETCH = 4;
+
+    private final Stream<DataBuffer> stream;
+    private final Iterator<DataBuffer> iterator;
+    private DataBuffer current;
+
+    DataBufferInputStream(Flux<DataBuffer> body) {
+        this.stream = body
+                .doOnDiscard(PooledDataBuffer.class, DataBufferUtils::release)
+                .toStream(PREFETCH);
+        this.iterator = stream.iterator();
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!advance()) {
+            return -1;
+        }
+        return current.read() & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!advance()) {
+            return -1;
+        }
+        int n = Math.min(len, current.readableByteCount());
+        current.read(b, off, n);
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return current != null ? current.readableByteCount() : 0;
+    }
+
+    @Override
+    public void close() {
+        releaseCurrent();
+        stream.close();
+    }
+
+    private boolean advance() throws IOException {
+        while (current == null || current.readableByteCount() == 0) {
+            releaseCurrent();
+            try {
+                if (!iterator.hasNext()) {
+                    return false;
+                }
+                current = iterator.next();
+            } catch (RuntimeException e) {
+                throw new IOException("Failed to read response body: " + e.getMessage(), e);
+            }
+        }
+        return true;
+    }
+
+    private void releaseCurrent() {
+        if (current != null) {
+            DataBufferUtils.release(current);
+            current = null;
+        }
+    }
+}
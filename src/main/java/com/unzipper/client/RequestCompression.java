@@ -0,0 +1,176 @@
+package com.unzipper.client;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Content-Encoding of Documentum request bodies. Bodies of at least min-bytes are compressed with gzip or
+ * deflate (zlib); streamed bodies are compressed chunk by chunk as they are sent, so they are never held
+ * whole. Upload bodies are mostly Base64 of already compressed files: string matching finds next to
+ * nothing in them, so by default only Huffman coding is applied, which gets back most of the 6-bits-per-byte
+ * redundancy of Base64 (about a quarter) at a fraction of the CPU. Documentum answering 415 to a compressed
+ * body switches compression off for good (RFC 7694), and the caller resends the body uncompressed.
+ */
+class RequestCompression {
+
+    private static final Logger logger = LoggerFactory.getLogger(RequestCompression.class);
+
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+    private static final int OUTPUT_BUFFER_BYTES = 64 * 1024;
+
+    private final String encoding;
+    private final int level;
+    private final int strategy;
+    private final long minBytes;
+    private volatile boolean enabled;
+
+    RequestCompression(boolean enabled, String encoding, String strategy, int level, long minBytes) {
+        if (!encoding.equals("gzip") && !encoding.equals("deflate")) {
+            throw new IllegalArgumentException("documentum.compression.request.encoding must be gzip or deflate, was: " + encoding);
+        }
+        switch (strategy) {
+            case "huffman":
+                this.strategy = Deflater.HUFFMAN_ONLY;
+                break;
+            case "default":
+                this.strategy = Deflater.DEFAULT_STRATEGY;
+                break;
+            default:
+                throw new IllegalArgumentException("documentum.compression.request.strategy must be huffman or default, was: " + strategy);
+        }
+        this.enabled = enabled;
+        this.encoding = encoding;
+        this.level = level;
+        this.minBytes = minBytes;
+    }
+
+    /** The Content-Encoding header value. */
+    String getEncoding() {
+        return encoding;
+    }
+
+    /**
+     * Whether a body of this many bytes is sent compressed.
+     */
+    boolean applies(long contentLength) {
+        return enabled && contentLength >= minBytes;
+    }
+
+    /**
+     * Documentum answered 415 to a compressed body: send everything uncompressed from now on.
+     */
+    void rejected(String url) {
+        if (enabled) {
+            enabled = false;
+            logger.warn("Documentum does not accept {} request bodies at {}, sending them uncompressed", encoding, url);
+        }
+    }
+
+    byte[] compress(byte[] body) {
+        Compressor compressor = new Compressor();
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 2);
+            out.writeBytes(compressor.update(ByteBuffer.wrap(body)));
+            out.writeBytes(compressor.finish());
+            return out.toByteArray();
+        } finally {
+            compressor.end();
+        }
+    }
+
+    /**
+     * Compress a streamed body as it is consumed. The length of the result is not known up front, so it
+     * goes out with chunked transfer encoding.
+     */
+    Flux<DataBuffer> compress(Flux<DataBuffer> body) {
+        return Flux.defer(() -> {
+            Compressor compressor = new Compressor();
+            return body
+                    .map(buffer -> {
+                        try {
+                            return compressor.update(buffer.asByteBuffer());
+                        } finally {
+                            DataBufferUtils.release(buffer);
+                        }
+                    })
+                    .concatWith(Mono.fromCallable(compressor::finish))
+                    // An empty chunk would read as the end of the body
+                    .filter(bytes -> bytes.length > 0)
+                    .<DataBuffer>map(DefaultDataBufferFactory.sharedInstance::wrap)
+                    .doFinally(signal -> compressor.end());
+        });
+    }
+
+    /**
+     * One body's deflater, plus the gzip header and trailer when encoding is gzip. Not thread-safe; a
+     * streamed body is consumed by one subscriber at a time.
+     */
+    private class Compressor {
+        private final boolean gzip = encoding.equals("gzip");
+        private final Deflater deflater = new Deflater(level, gzip);
+        private final CRC32 crc = gzip ? new CRC32() : null;
+        private final byte[] output = new byte[OUTPUT_BUFFER_BYTES];
+        private boolean started;
+
+        Compressor() {
+            deflater.setStrategy(strategy);
+        }
+
+        byte[] update(ByteBuffer input) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            start(out);
+            if (crc != null) {
+                crc.update(input.duplicate());
+            }
+            deflater.setInput(input);
+            while (!deflater.needsInput()) {
+                out.write(output, 0, deflater.deflate(output));
+            }
+            return out.toByteArray();
+        }
+
+        byte[] finish() {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            start(out);
+            deflater.finish();
+            while (!deflater.finished()) {
+                out.write(output, 0, deflater.deflate(output));
+            }
+            if (crc != null) {
+                writeIntLE(out, (int) crc.getValue());
+                writeIntLE(out, (int) deflater.getBytesRead());
+            }
+            return out.toByteArray();
+        }
+
+        void end() {
+            deflater.end();
+        }
+
+        private void start(ByteArrayOutputStream out) {
+            if (!started) {
+                started = true;
+                if (gzip) {
+                    out.writeBytes(GZIP_HEADER);
+                }
+            }
+        }
+
+        private void writeIntLE(ByteArrayOutputStream out, int value) {
+            out.write(value);
+            out.write(value >>> 8);
+            out.write(value >>> 16);
+            out.write(value >>> 24);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.unzipper.config;
+
+import com.unzipper.client.DocumentumClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.boot.context.metrics.buffering.StartupTimeline;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.sql.DataSource;
+import java.lang.management.ManagementFactory;
+import java.sql.Connection;
+import java.util.Comparator;
+import java.util.StringJoiner;
+
+/**
+ * Readiness-gated warm-up after the application has started.
+ *
+ * Once the context is ready, a background thread creates the request path (controllers and everything
+ * they depend on, which under lazy initialization has not been built yet), opens a database connection
+ * and warms up the Documentum HTTP client. Until it finishes, this indicator reports OUT_OF_SERVICE,
+ * so the readiness probe keeps traffic away while the port is already open. It then logs a startup report
+ * with the slowest startup steps, and for class-data-sharing training runs it can exit the JVM.
+ */
+@Component
+public class StartupWarmUp implements ApplicationListener<ApplicationReadyEvent>, HealthIndicator {
+
+    private static final Logger logger = LoggerFactory.getLogger(StartupWarmUp.class);
+
+    private final boolean enabled;
+    private final int reportTop;
+    private final boolean exitAfterWarmUp;
+
+    private volatile boolean warm;
+
+    public StartupWarmUp(@Value("${unzip.startup.warmup.enabled}") boolean enabled,
+                         @Value("${unzip.startup.report.top}") int reportTop,
+                         @Value("${unzip.startup.exit-after-warmup}") boolean exitAfterWarmUp) {
+        this.enabled = enabled;
+        this.reportTop = reportTop;
+        this.exitAfterWarmUp = exitAfterWarmUp;
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        ConfigurableApplicationContext context = event.getApplicationContext();
+        long readyMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+        Thread thread = new Thread(() -> {
+            if (enabled) {
+                warmUp(context);
+            }
+            warm = true;
+            report(context, readyMillis, ManagementFactory.getRuntimeMXBean().getUptime());
+            if (exitAfterWarmUp) {
+                logger.info("Exiting after warm-up as configured (unzip.startup.exit-after-warmup)");
+                System.exit(SpringApplication.exit(context, () -> 0));
+            }
+        }, "startup-warmup");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public Health health() {
+        return warm ? Health.up().build() : Health.outOfService().withDetail("warmUp", "in progress").build();
+    }
+
+    private void warmUp(ConfigurableApplicationContext context) {
+        try {
+            // Creating the controllers pulls in the services, clients, pools and repositories behind them
+            context.getBeansWithAnnotation(RestController.class);
+            try (Connection connection = context.getBean(DataSource.class).getConnection()) {
+                connection.isValid(5);
+            }
+            context.getBean(DocumentumClient.class).warmUp();
+        } catch (Exception e) {
+            // The first requests will pay for whatever did not warm up; that is no reason to stay unready
+            logger.warn("Startup warm-up failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private void report(ConfigurableApplicationContext context, long readyMillis, long warmMillis) {
+        logger.info("Startup: ready {} ms, warm {} ms after JVM start", readyMillis, warmMillis);
+        ApplicationStartup startup = context.getApplicationStartup();
+        if (!(startup instanceof BufferingApplicationStartup) || reportTop <= 0) {
+            return;
+        }
+        // Steps nest (a bean's time includes its dependencies), so the slowest ones overlap; this is a
+        // pointer to where the time goes, /actuator/startup has the full timeline
+        ((BufferingApplicationStartup) startup).getBufferedTimeline().getEvents().stream()
+                .sorted(Comparator.comparing(StartupTimeline.TimelineEvent::getDuration).reversed())
+                .limit(reportTop)
+                .forEach(e -> logger.info("  {} ms {} {}", e.getDuration().toMillis(), e.getStartupStep().getName(),
+                        tags(e.getStartupStep())));
+    }
+
+    private static String tags(StartupStep step) {
+        StringJoiner joiner = new StringJoiner(", ", "[", "]");
+        step.getTags().forEach(tag -> joiner.add(tag.getKey() + "=" + tag.getValue()));
+        return joiner.toString();
+    }
+}
@@ -0,0 +1,69 @@
+package com.unzipper.controller;
+
+import com.unzipper.cache.CachedDocument;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.commons.compress.utils.SeekableInMemoryByteChannel;
+import org.springframework.core.io.AbstractResource;
+
+import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * One member of a cached archive, inflated on demand. Each stream opens the archive
+ * through its central directory and reads only that member.
+ */
+class ArchiveEntryResource extends AbstractResource {
+
+    private final CachedDocument archive;
+    private final String entryName;
+    private final long size;
+
+    ArchiveEntryResource(CachedDocument archive, String entryName, long size) {
+        this.archive = archive;
+        this.entryName = entryName;
+        this.size = size;
+    }
+
+    static ZipFile open(CachedDocument archive) throws IOException {
+        return archive.isInMemory()
+                ? ZipFile.builder().setSeekableByteChannel(new SeekableInMemoryByteChannel(archive.getContent())).get()
+                : ZipFile.builder().setPath(archive.getFile()).get();
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        ZipFile zipFile = open(archive);
+        try {
+            ZipArchiveEntry entry = zipFile.getEntry(entryName);
+            if (entry == null) {
+                throw new FileNotFoundException(getDescription());
+            }
+            return new FilterInputStream(zipFile.getInputStream(entry)) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        zipFile.close();
+                    }
+                }
+            };
+        } catch (IOException | RuntimeException e) {
+            zipFile.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public long contentLength() throws IOException {
+        return size >= 0 ? size : super.contentLength();
+    }
+
+    @Override
+    public String getDescription() {
+        return "archive entry [" + entryName + " in " + archive.getFilename() + "]";
+    }
+}
@@ -0,0 +1,48 @@
+package com.unzipper.controller;
+
+import org.apache.commons.io.input.BoundedInputStream;
+import org.springframework.core.io.AbstractResource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A byte range of a local file exposed as a Resource, so Spring's Range handling
+ * applies to the region (e.g. a stored member inside a cached archive).
+ */
+class FileRegionResource extends AbstractResource {
+
+    private final Path file;
+    private final long offset;
+    private final long length;
+
+    FileRegionResource(Path file, long offset, long length) {
+        this.file = file;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        channel.position(offset);
+        return BoundedInputStream.builder()
+                .setInputStream(Channels.newInputStream(channel))
+                .setMaxCount(length)
+                .get();
+    }
+
+    @Override
+    public long contentLength() {
+        return length;
+    }
+
+    @Override
+    public String getDescription() {
+        return "file region [" + file + " @" + offset + "+" + length + "]";
+    }
+}
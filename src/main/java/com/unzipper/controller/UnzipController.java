@@ -1,22 +1,53 @@
 package com.unzipper.controller;
 
-import com.unzipper.client.DocumentumClient;
-import com.unzipper.model.DownloadedDocument;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.unzipper.admission.AdmissionRejectedException;
+import com.unzipper.cache.CachedDocument;
+import com.unzipper.cache.DocumentCache;
+import com.unzipper.diagnostics.FlightRecordings;
+import com.unzipper.model.BulkUnzipItem;
+import com.unzipper.model.BulkUnzipResult;
+import com.unzipper.model.DocumentChildrenPage;
+import com.unzipper.model.FlightRecordingInfo;
 import com.unzipper.model.UnzipDetail;
+import com.unzipper.model.UnzipDetailView;
+import com.unzipper.model.UnzipProgress;
 import com.unzipper.model.UnzipResponse;
+import com.unzipper.service.BulkUnzipService;
+import com.unzipper.service.DocumentQueryService;
+import com.unzipper.service.UnzipProgressRegistry;
 import com.unzipper.service.UnzipService;
 import com.unzipper.service.UnzipSaveDocService;
+import com.unzipper.storage.TempStorageExhaustedException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.commons.io.FilenameUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ByteArrayResource;
 import org.springframework.core.io.InputStreamResource;
 import org.springframework.core.io.Resource;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
 
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
 
 @RestController
 public class UnzipController {
@@ -24,12 +55,38 @@ public class UnzipController {
     private static final Logger logger = LoggerFactory.getLogger(UnzipController.class);
     private final UnzipService unzipService;
     private final UnzipSaveDocService unzipSaveDocService;
-    private final DocumentumClient documentumClient;
+    private final DocumentCache documentCache;
+    private final UnzipProgressRegistry progressRegistry;
+    private final DocumentQueryService documentQueryService;
+    private final FlightRecordings flightRecordings;
+    private final BulkUnzipService bulkUnzipService;
+    private final ObjectMapper objectMapper;
+    private final long bulkResponseTimeoutMillis;
+    private final boolean jfrEndpointsEnabled;
 
-    public UnzipController(UnzipService unzipService, UnzipSaveDocService unzipSaveDocService, DocumentumClient documentumClient) {
+    // Tomcat request attributes for zero-copy file transfer (see org.apache.catalina.servlets.DefaultServlet)
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    public UnzipController(UnzipService unzipService, UnzipSaveDocService unzipSaveDocService, DocumentCache documentCache,
+                           UnzipProgressRegistry progressRegistry, DocumentQueryService documentQueryService,
+                           FlightRecordings flightRecordings, BulkUnzipService bulkUnzipService, ObjectMapper objectMapper,
+                           @Value("${unzip.bulk.response-timeout-ms}") long bulkResponseTimeoutMillis,
+                           @Value("${unzip.jfr.endpoints.enabled}") boolean jfrEndpointsEnabled) {
         this.unzipService = unzipService;
         this.unzipSaveDocService = unzipSaveDocService;
-        this.documentumClient = documentumClient;
+        this.documentCache = documentCache;
+        this.progressRegistry = progressRegistry;
+        this.documentQueryService = documentQueryService;
+        this.flightRecordings = flightRecordings;
+        this.bulkUnzipService = bulkUnzipService;
+        this.objectMapper = objectMapper;
+        this.bulkResponseTimeoutMillis = bulkResponseTimeoutMillis;
+        this.jfrEndpointsEnabled = jfrEndpointsEnabled;
     }
 
     @PostMapping("/unzip")
@@ -47,7 +104,11 @@ public class UnzipController {
     @GetMapping("/unzip_upload_save_doc/{clientId}/{documentLinkId}")
     public ResponseEntity<Map<String, UnzipDetail>> unzipUploadSaveDoc(
             @PathVariable("documentLinkId") String documentLinkId,
-            @PathVariable("clientId") String clientId) {
+            @PathVariable("clientId") String clientId,
+            @RequestParam(value = "view", required = false) String view,
+            @RequestParam(value = "tree_depth", required = false) Integer treeDepth,
+            @RequestParam(value = "files_after", required = false) String filesAfter,
+            @RequestParam(value = "files_limit", required = false) Integer filesLimit) {
         logger.info("Received unzip_upload_save_doc request for clientId: {}, documentLinkId: {}", clientId, documentLinkId);
         
         if (documentLinkId == null || documentLinkId.trim().isEmpty()) {
@@ -60,15 +121,66 @@ public class UnzipController {
             return ResponseEntity.badRequest().build();
         }
         
-        Map<String, UnzipDetail> response = unzipSaveDocService.processDocumentUnzip(documentLinkId, clientId);
+        UnzipDetailView detailView;
+        try {
+            detailView = unzipSaveDocService.detailView(view, treeDepth, filesAfter, filesLimit);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Rejected unzip_upload_save_doc request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+
+        Map<String, UnzipDetail> response = unzipSaveDocService.processDocumentUnzip(documentLinkId, clientId, detailView);
         logger.info("Successfully processed unzip_upload_save_doc for documentLinkId: {}, clientId: {}", documentLinkId, clientId);
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Unzip many Documentum documents in one request. Answers newline-delimited JSON, one line per document
+     * in the order they finish, so results arrive while the rest are still running. 'view' and 'tree_depth'
+     * apply to every document; files_unzipped is not paged here.
+     */
+    @PostMapping(value = "/unzip_upload_save_doc/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<ResponseBodyEmitter> unzipUploadSaveDocBulk(
+            @RequestBody List<BulkUnzipItem> items,
+            @RequestParam(value = "view", required = false) String view,
+            @RequestParam(value = "tree_depth", required = false) Integer treeDepth) {
+        // 0 leaves the response open until the last document is done
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(bulkResponseTimeoutMillis);
+        BulkUnzipService.BulkRun run;
+        try {
+            UnzipDetailView detailView = unzipSaveDocService.detailView(view, treeDepth, null, null);
+            run = bulkUnzipService.start(items, detailView, result -> sendLine(emitter, result), emitter::complete);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Rejected bulk unzip request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+        logger.info("Received unzip_upload_save_doc bulk request for {} documents", items.size());
+        // Stop starting documents once nobody is reading the results
+        emitter.onTimeout(run::cancel);
+        emitter.onError(e -> run.cancel());
+        return ResponseEntity.ok().contentType(NDJSON).body(emitter);
+    }
+
+    private void sendLine(ResponseBodyEmitter emitter, BulkUnzipResult result) {
+        try {
+            String line = objectMapper.writeValueAsString(result) + "\n";
+            // Workers finish concurrently; one line at a time
+            synchronized (emitter) {
+                emitter.send(line, MediaType.TEXT_PLAIN);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not send bulk unzip result for " + result.getDocumentLinkId(), e);
+        }
+    }
+
     @PostMapping(value = "/unzip_upload_doc/{clientId}", consumes = org.springframework.http.MediaType.MULTIPART_FORM_DATA_VALUE)
     public ResponseEntity<Map<String, UnzipDetail>> unzipUploadDoc(
             @PathVariable("clientId") String clientId,
-            @RequestPart("file") MultipartFile file) {
+            @RequestPart("file") MultipartFile file,
+            @RequestParam(value = "view", required = false) String view,
+            @RequestParam(value = "tree_depth", required = false) Integer treeDepth,
+            @RequestParam(value = "files_after", required = false) String filesAfter,
+            @RequestParam(value = "files_limit", required = false) Integer filesLimit) {
         
         logger.info("Received unzip_upload_doc request for clientId: {}, file: {}", clientId, file.getOriginalFilename());
         
@@ -81,20 +193,57 @@ public class UnzipController {
             logger.warn("Received empty file");
             return ResponseEntity.badRequest().build();
         }
+
+        UnzipDetailView detailView;
+        try {
+            detailView = unzipSaveDocService.detailView(view, treeDepth, filesAfter, filesLimit);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Rejected unzip_upload_doc request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
         
         try {
-            Map<String, UnzipDetail> response = unzipSaveDocService.processDirectUpload(file, clientId);
+            Map<String, UnzipDetail> response = unzipSaveDocService.processDirectUpload(file, clientId, detailView);
             // The key in the map is the generated documentLinkId
             logger.info("Successfully processed unzip_upload_doc for clientId: {}", clientId);
             return ResponseEntity.ok(response);
+        } catch (AdmissionRejectedException | TempStorageExhaustedException e) {
+            throw e;
         } catch (Exception e) {
              logger.error("Internal server error during unzip_upload_doc", e);
              return ResponseEntity.internalServerError().build();
         }
     }
 
+    @GetMapping("/unzip_progress/{clientId}/{documentLinkId}")
+    public ResponseEntity<UnzipProgress> unzipProgress(
+            @PathVariable("clientId") String clientId,
+            @PathVariable("documentLinkId") String documentLinkId) {
+        // Running requests, and finished ones for a while after they complete
+        return progressRegistry.get(clientId, documentLinkId)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Files extracted from an archive, in pages. Pass the returned next_cursor as 'after' for the next page.
+     */
+    @GetMapping("/documents/{parentDocumentLinkId}/children")
+    public ResponseEntity<DocumentChildrenPage> documentChildren(
+            @PathVariable("parentDocumentLinkId") String parentDocumentLinkId,
+            @RequestParam(value = "after", required = false) String after,
+            @RequestParam(value = "limit", required = false) Integer limit) {
+        try {
+            return ResponseEntity.ok(documentQueryService.children(parentDocumentLinkId, after, limit));
+        } catch (IllegalArgumentException e) {
+            logger.warn("Rejected children query for {}: {}", parentDocumentLinkId, e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @GetMapping("/fetch_file_documentum/{documentLinkId}")
-    public ResponseEntity<Resource> fetchFileDocumentum(@PathVariable("documentLinkId") String documentLinkId) {
+    public ResponseEntity<Resource> fetchFileDocumentum(@PathVariable("documentLinkId") String documentLinkId,
+                                                        HttpServletRequest request) {
         logger.info("Received fetch_file_documentum request for documentLinkId: {}", documentLinkId);
 
         if (documentLinkId == null || documentLinkId.trim().isEmpty()) {
@@ -102,16 +251,216 @@ public class UnzipController {
         }
 
         try {
-            DownloadedDocument doc = documentumClient.fetchDocument(documentLinkId);
-            InputStreamResource resource = new InputStreamResource(doc.getContentStream());
+            CachedDocument doc = documentCache.get(documentLinkId);
+            ContentDisposition disposition = ContentDisposition.attachment().filename(doc.getFilename()).build();
 
-            return ResponseEntity.ok()
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + doc.getFilename() + "\"")
-                    .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                    .body(resource);
+            if (doc.isInMemory()) {
+                // Spring answers Range requests for Resource bodies with 206 / multipart byteranges
+                return ResponseEntity.ok()
+                        .header(HttpHeaders.CONTENT_DISPOSITION, disposition.toString())
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                        .body(new ByteArrayResource(doc.getContent()));
+            }
+            return sendFileRegion(request, doc.getFile(), 0, doc.getSize(), MediaType.APPLICATION_OCTET_STREAM, disposition);
         } catch (Exception e) {
             logger.error("Error fetching file from Documentum", e);
             return ResponseEntity.internalServerError().build();
         }
     }
+
+    /**
+     * Stream a single member of an archive stored in Documentum, using the zip central directory
+     * to seek straight to it instead of extracting the archive.
+     */
+    @GetMapping("/fetch_file_documentum/{documentLinkId}/entry")
+    public ResponseEntity<Resource> fetchFileDocumentumEntry(@PathVariable("documentLinkId") String documentLinkId,
+                                                             @RequestParam("path") String path,
+                                                             HttpServletRequest request) {
+        logger.info("Received fetch_file_documentum entry request for documentLinkId: {}, path: {}", documentLinkId, path);
+
+        if (documentLinkId == null || documentLinkId.trim().isEmpty() || path == null || path.isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        try {
+            CachedDocument doc = documentCache.get(documentLinkId);
+            ZipArchiveEntry entry;
+            boolean readable;
+            try (ZipFile zipFile = ArchiveEntryResource.open(doc)) {
+                entry = zipFile.getEntry(path);
+                readable = entry != null && zipFile.canReadEntryData(entry);
+            }
+            if (entry == null || entry.isDirectory()) {
+                return ResponseEntity.notFound().build();
+            }
+            if (!readable) {
+                return ResponseEntity.status(HttpStatus.UNSUPPORTED_MEDIA_TYPE).build();
+            }
+
+            String name = FilenameUtils.getName(entry.getName());
+            MediaType contentType = MediaTypeFactory.getMediaType(name).orElse(MediaType.APPLICATION_OCTET_STREAM);
+            ContentDisposition disposition = ContentDisposition.inline().filename(name).build();
+
+            if (!doc.isInMemory() && entry.getMethod() == ZipEntry.STORED) {
+                // Stored members are a plain byte range of the cached archive
+                return sendFileRegion(request, doc.getFile(), entry.getDataOffset(), entry.getSize(), contentType, disposition);
+            }
+            return ResponseEntity.ok()
+                    .header(HttpHeaders.CONTENT_DISPOSITION, disposition.toString())
+                    .contentType(contentType)
+                    .body(new ArchiveEntryResource(doc, entry.getName(), entry.getSize()));
+        } catch (ZipException e) {
+            logger.warn("Document {} is not a readable zip archive: {}", documentLinkId, e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            logger.error("Error fetching archive entry from Documentum", e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    /**
+     * Start a flight recording that stops by itself after duration_seconds; download it with the stop endpoint.
+     */
+    @PostMapping("/diagnostics/jfr/recordings")
+    public ResponseEntity<FlightRecordingInfo> startFlightRecording(
+            @RequestParam(value = "duration_seconds", defaultValue = "60") long durationSeconds) {
+        if (!jfrEndpointsEnabled) {
+            return ResponseEntity.notFound().build();
+        }
+        try {
+            return ResponseEntity.ok(flightRecordings.start(durationSeconds));
+        } catch (IllegalArgumentException e) {
+            logger.warn("Rejected flight recording: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (IllegalStateException e) {
+            logger.warn("Rejected flight recording: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
+
+    @GetMapping("/diagnostics/jfr/recordings")
+    public ResponseEntity<List<FlightRecordingInfo>> flightRecordings() {
+        if (!jfrEndpointsEnabled) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(flightRecordings.list());
+    }
+
+    /**
+     * Stop a flight recording (if still running) and download it as a .jfr file. The recording is discarded afterwards.
+     */
+    @PostMapping("/diagnostics/jfr/recordings/{id}/stop")
+    public ResponseEntity<Resource> stopFlightRecording(@PathVariable("id") long id) {
+        if (!jfrEndpointsEnabled) {
+            return ResponseEntity.notFound().build();
+        }
+        try {
+            return flightRecordings.stop(id)
+                    .map(data -> jfrFile("unzipper-" + id + ".jfr", data))
+                    .orElseGet(() -> ResponseEntity.notFound().build());
+        } catch (Exception e) {
+            logger.error("Error stopping flight recording {}", id, e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    /**
+     * The last minutes of the continuous flight recording as a .jfr file.
+     */
+    @GetMapping("/diagnostics/jfr/dump")
+    public ResponseEntity<Resource> dumpFlightRecording(@RequestParam(value = "minutes", defaultValue = "5") long minutes) {
+        if (!jfrEndpointsEnabled) {
+            return ResponseEntity.notFound().build();
+        }
+        try {
+            return jfrFile("unzipper-last-" + minutes + "m.jfr", flightRecordings.dump(minutes));
+        } catch (IllegalArgumentException e) {
+            logger.warn("Rejected flight recording dump: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (IllegalStateException e) {
+            logger.warn("Rejected flight recording dump: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        } catch (Exception e) {
+            logger.error("Error dumping flight recording", e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    private static ResponseEntity<Resource> jfrFile(String filename, InputStream data) {
+        // Streamed as it is read; the stream discards the recording (or its copy) when it is closed
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(filename).build().toString())
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .body(new InputStreamResource(data));
+    }
+
+    /**
+     * Requests turned away by admission control get 429/503 with Retry-After, so clients back off and retry.
+     */
+    @ExceptionHandler(AdmissionRejectedException.class)
+    public ResponseEntity<Map<String, String>> admissionRejected(AdmissionRejectedException e) {
+        logger.warn("Rejected unzip request ({}): {}", e.getStatus().value(), e.getMessage());
+        return ResponseEntity.status(e.getStatus())
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(Collections.singletonMap("error", e.getMessage()));
+    }
+
+    /**
+     * Requests that could not reserve temp storage in time get 503; they were never started.
+     */
+    @ExceptionHandler(TempStorageExhaustedException.class)
+    public ResponseEntity<Map<String, String>> tempStorageExhausted(TempStorageExhaustedException e) {
+        logger.warn("Rejected unzip request (503): {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .body(Collections.singletonMap("error", e.getMessage()));
+    }
+
+    /**
+     * Serve [offset, offset + length) of a local file. With Tomcat sendfile available, a single-range
+     * Range header is answered here with zero-copy transfer; everything else is left to Spring's
+     * Resource handling, which also covers Range and multipart byteranges.
+     */
+    private ResponseEntity<Resource> sendFileRegion(HttpServletRequest request, Path file, long offset, long length,
+                                                    MediaType contentType, ContentDisposition disposition) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.CONTENT_DISPOSITION, disposition.toString());
+        headers.setContentType(contentType);
+
+        List<HttpRange> ranges;
+        try {
+            ranges = HttpRange.parseRanges(request.getHeader(HttpHeaders.RANGE));
+        } catch (IllegalArgumentException e) {
+            ranges = Collections.emptyList();
+        }
+        if (ranges.size() > 1 || !Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            return ResponseEntity.ok().headers(headers).body(new FileRegionResource(file, offset, length));
+        }
+
+        headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+        HttpStatus status = HttpStatus.OK;
+        long start = 0;
+        long end = length - 1;
+        if (ranges.size() == 1) {
+            HttpRange range = ranges.get(0);
+            try {
+                start = range.getRangeStart(length);
+                end = range.getRangeEnd(length);
+            } catch (IllegalArgumentException e) {
+                start = length; // Unsatisfiable
+            }
+            if (start >= length || start > end) {
+                headers.set(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                return new ResponseEntity<>(headers, HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE);
+            }
+            status = HttpStatus.PARTIAL_CONTENT;
+            headers.set(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+        }
+        headers.setContentLength(end - start + 1);
+
+        // Let Tomcat stream the region with sendfile once the headers are committed
+        request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+        request.setAttribute(SENDFILE_START, offset + start);
+        request.setAttribute(SENDFILE_END, offset + end + 1);
+        return new ResponseEntity<>(headers, status);
+    }
 }
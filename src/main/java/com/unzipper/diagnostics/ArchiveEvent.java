@@ -0,0 +1,41 @@
+package com.unzipper.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One archive level, from opening it to the moment all its files are stored and nested archives processed.
+ */
+@Name("com.unzipper.Archive")
+@Label("Archive")
+@Category({"Unzipper", "Extraction"})
+@Description("Extraction of one archive level, including its stores and nested archives")
+@StackTrace(false)
+public class ArchiveEvent extends jdk.jfr.Event {
+
+    @Label("Path")
+    public String path;
+
+    @Label("Depth")
+    @Description("0 for the uploaded or fetched archive, 1 for archives nested in it, and so on")
+    public int depth;
+
+    @Label("Compressed Size")
+    @DataAmount
+    public long compressedBytes;
+
+    @Label("Inflated Size")
+    @DataAmount
+    @Description("Inflated size of the files at this level, from the central directory")
+    public long inflatedBytes;
+
+    @Label("Entries")
+    public int entries;
+
+    @Label("Failed")
+    public boolean failed;
+}
@@ -0,0 +1,75 @@
+package com.unzipper.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+/**
+ * One HTTP call to Documentum: a fetch, a single upload or a batch upload. A chunked upload is one event
+ * for the whole file plus one per part attempt.
+ */
+@Name("com.unzipper.DocumentumCall")
+@Label("Documentum Call")
+@Category({"Unzipper", "Documentum"})
+@Description("One HTTP call to Documentum")
+@StackTrace(false)
+public class DocumentumCallEvent extends jdk.jfr.Event {
+
+    @Label("Operation")
+    @Description("fetch, upload, batch-upload, chunked-upload or upload-part")
+    public String operation;
+
+    @Label("Document")
+    @Description("Fetched document_link_id, uploaded file name, or the first file of a batch")
+    public String document;
+
+    @Label("Parent Document")
+    public String parentDocumentLinkId;
+
+    @Label("Documents")
+    public int documents;
+
+    @Label("Request Size")
+    @Description("Before compression")
+    @DataAmount
+    public long requestBytes;
+
+    @Label("Content Encoding")
+    @Description("Encoding of the request body, if compressed")
+    public String contentEncoding;
+
+    @Label("Binary")
+    @Description("Raw application/octet-stream body instead of Base64 in JSON")
+    public boolean binary;
+
+    @Label("Status")
+    @Description("HTTP status, or 0 if no response was received")
+    public int status;
+
+    @Label("Error")
+    public String error;
+
+    public DocumentumCallEvent(String operation, String document, String parentDocumentLinkId, int documents) {
+        this.operation = operation;
+        this.document = document;
+        this.parentDocumentLinkId = parentDocumentLinkId;
+        this.documents = documents;
+    }
+
+    /**
+     * Record how the call ended: its HTTP status if Documentum answered, and the error if any.
+     */
+    public void failed(Exception e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof WebClientResponseException) {
+                status = ((WebClientResponseException) t).getRawStatusCode();
+                break;
+            }
+        }
+        error = e.getClass().getSimpleName() + ": " + e.getMessage();
+    }
+}
@@ -0,0 +1,33 @@
+package com.unzipper.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Inflating one entry into its temp file. Waiting for the in-flight window and storing the file are not included.
+ */
+@Name("com.unzipper.EntryExtraction")
+@Label("Entry Extraction")
+@Category({"Unzipper", "Extraction"})
+@Description("Inflation of one archive entry into a temp file")
+@StackTrace(false)
+public class EntryExtractionEvent extends jdk.jfr.Event {
+
+    @Label("Path")
+    public String path;
+
+    @Label("Compressed Size")
+    @DataAmount
+    public long compressedBytes;
+
+    @Label("Size")
+    @DataAmount
+    public long bytes;
+
+    @Label("Nested Archive")
+    public boolean nestedArchive;
+}
@@ -0,0 +1,218 @@
+package com.unzipper.diagnostics;
+
+import com.unzipper.model.FlightRecordingInfo;
+import jdk.jfr.Configuration;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * JDK Flight Recorder recordings of the service, carrying the unzip events of this package next to the
+ * JDK's own (GC, threads, IO, locks).
+ *
+ * A continuous recording keeps the last unzip.jfr.continuous.max-age-minutes on disk, so the minutes
+ * around a slow request can be dumped after the fact. Bounded recordings can be started on demand: each
+ * stops after its duration (at most unzip.jfr.recording.max-duration-seconds) or when it is downloaded,
+ * and at most unzip.jfr.recording.max-active are kept at once.
+ *
+ * Every recording uses unzip.jfr.settings with jfr/redactions.jfc applied on top, which turns off the JDK
+ * events that would copy environment variables, system properties and command lines (and so the
+ * database and certificate passwords) into the recordings.
+ */
+@Component
+public class FlightRecordings implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(FlightRecordings.class);
+
+    private static final String REDACTIONS = "/jfr/redactions.jfc";
+
+    private final Map<String, String> settings;
+    private final Recording continuous;
+    private final long continuousMaxAgeMinutes;
+    private final long maxDurationSeconds;
+    private final long maxBytes;
+    private final int maxActive;
+
+    // Guarded by 'this'. On-demand recordings by id, oldest first
+    private final Map<Long, Recording> recordings = new LinkedHashMap<>();
+
+    public FlightRecordings(@Value("${unzip.jfr.settings}") String settingsName,
+                            @Value("${unzip.jfr.continuous.enabled}") boolean continuousEnabled,
+                            @Value("${unzip.jfr.continuous.max-age-minutes}") long continuousMaxAgeMinutes,
+                            @Value("${unzip.jfr.continuous.max-bytes}") long continuousMaxBytes,
+                            @Value("${unzip.jfr.recording.max-duration-seconds}") long maxDurationSeconds,
+                            @Value("${unzip.jfr.recording.max-bytes}") long maxBytes,
+                            @Value("${unzip.jfr.recording.max-active}") int maxActive) throws IOException, ParseException {
+        this.settings = redacted(Configuration.getConfiguration(settingsName));
+        this.continuousMaxAgeMinutes = continuousMaxAgeMinutes;
+        this.maxDurationSeconds = maxDurationSeconds;
+        this.maxBytes = maxBytes;
+        this.maxActive = Math.max(1, maxActive);
+
+        // Known to the recorder from the start, so they show up in the settings of every recording
+        FlightRecorder.register(ArchiveEvent.class);
+        FlightRecorder.register(EntryExtractionEvent.class);
+        FlightRecorder.register(DocumentumCallEvent.class);
+        FlightRecorder.register(RecordFlushEvent.class);
+
+        if (continuousEnabled) {
+            this.continuous = new Recording(settings);
+            continuous.setName("unzipper-continuous");
+            continuous.setToDisk(true);
+            continuous.setMaxAge(Duration.ofMinutes(continuousMaxAgeMinutes));
+            continuous.setMaxSize(continuousMaxBytes);
+            continuous.start();
+            logger.info("Continuous flight recording started ({} settings, last {} minutes)", settingsName, continuousMaxAgeMinutes);
+        } else {
+            this.continuous = null;
+        }
+    }
+
+    private static Map<String, String> redacted(Configuration base) throws IOException, ParseException {
+        InputStream in = FlightRecordings.class.getResourceAsStream(REDACTIONS);
+        if (in == null) {
+            throw new IOException("Missing " + REDACTIONS);
+        }
+        Map<String, String> settings = new LinkedHashMap<>(base.getSettings());
+        try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+            settings.putAll(Configuration.create(reader).getSettings());
+        }
+        return settings;
+    }
+
+    @Override
+    public void destroy() {
+        synchronized (this) {
+            recordings.values().forEach(Recording::close);
+            recordings.clear();
+        }
+        if (continuous != null) {
+            continuous.close();
+        }
+    }
+
+    /**
+     * Start a recording that stops by itself after the given duration. Makes room by discarding the oldest
+     * stopped recording that was never downloaded; throws IllegalStateException if all slots are still recording.
+     */
+    public FlightRecordingInfo start(long durationSeconds) {
+        if (durationSeconds < 1 || durationSeconds > maxDurationSeconds) {
+            throw new IllegalArgumentException("duration_seconds must be between 1 and " + maxDurationSeconds);
+        }
+        Recording recording;
+        synchronized (this) {
+            if (recordings.size() >= maxActive && !discardOldestStopped()) {
+                throw new IllegalStateException(maxActive + " recordings are already running");
+            }
+            recording = new Recording(settings);
+            recording.setToDisk(true);
+            recording.setDuration(Duration.ofSeconds(durationSeconds));
+            recording.setMaxSize(maxBytes);
+            recording.setName("unzipper-" + recording.getId());
+            recording.start();
+            recordings.put(recording.getId(), recording);
+        }
+        logger.info("Started flight recording {} for {} s", recording.getId(), durationSeconds);
+        return info(recording);
+    }
+
+    public synchronized List<FlightRecordingInfo> list() {
+        List<FlightRecordingInfo> result = new ArrayList<>(recordings.size());
+        recordings.values().forEach(r -> result.add(info(r)));
+        return result;
+    }
+
+    /**
+     * Stop a recording if it is still running and hand over its data. The recording is discarded once the
+     * returned stream is closed.
+     */
+    public Optional<InputStream> stop(long id) throws IOException {
+        Recording recording;
+        synchronized (this) {
+            recording = recordings.remove(id);
+        }
+        if (recording == null) {
+            return Optional.empty();
+        }
+        if (recording.getState() == RecordingState.RUNNING) {
+            recording.stop();
+        }
+        logger.info("Stopped flight recording {}", id);
+        return Optional.of(closing(recording, recording.getStream(null, null)));
+    }
+
+    /**
+     * The last minutes of the continuous recording, up to and including what is still in memory.
+     */
+    public InputStream dump(long minutes) throws IOException {
+        if (continuous == null) {
+            throw new IllegalStateException("The continuous recording is disabled");
+        }
+        if (minutes < 1 || minutes > continuousMaxAgeMinutes) {
+            throw new IllegalArgumentException("minutes must be between 1 and " + continuousMaxAgeMinutes);
+        }
+        // A stopped copy flushes the chunk being written, so the most recent events are included
+        Recording copy = continuous.copy(true);
+        return closing(copy, copy.getStream(Instant.now().minus(Duration.ofMinutes(minutes)), null));
+    }
+
+    // Guarded by 'this'
+    private boolean discardOldestStopped() {
+        for (Recording recording : recordings.values()) {
+            if (recording.getState() != RecordingState.RUNNING) {
+                recordings.remove(recording.getId());
+                recording.close();
+                logger.info("Discarded flight recording {} that was never downloaded", recording.getId());
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static InputStream closing(Recording recording, InputStream data) {
+        // No stream when the recording holds no data yet
+        return new FilterInputStream(data != null ? data : new ByteArrayInputStream(new byte[0])) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    recording.close();
+                }
+            }
+        };
+    }
+
+    private static FlightRecordingInfo info(Recording recording) {
+        FlightRecordingInfo info = new FlightRecordingInfo();
+        info.setId(recording.getId());
+        info.setName(recording.getName());
+        info.setState(recording.getState().name());
+        info.setStartTime(recording.getStartTime());
+        info.setStopTime(recording.getStopTime());
+        info.setDurationSeconds(recording.getDuration() != null ? recording.getDuration().getSeconds() : 0);
+        info.setMaxBytes(recording.getMaxSize());
+        return info;
+    }
+}
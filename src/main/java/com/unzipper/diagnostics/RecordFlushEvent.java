@@ -0,0 +1,28 @@
+package com.unzipper.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One write of kyc_document_unzip records: a batch, retried one by one if the batch fails.
+ */
+@Name("com.unzipper.RecordFlush")
+@Label("Record Flush")
+@Category({"Unzipper", "Database"})
+@Description("One batched write of kyc_document_unzip records")
+@StackTrace(false)
+public class RecordFlushEvent extends jdk.jfr.Event {
+
+    @Label("Records")
+    public int records;
+
+    @Label("Saved Singly")
+    @Description("The batch failed and its records were saved one by one")
+    public boolean savedSingly;
+
+    @Label("Failed Records")
+    public int failedRecords;
+}
@@ -1,16 +1,34 @@
 package com.unzipper.entity;
 
+import com.unzipper.util.TimeOrderedId;
+import org.springframework.data.domain.Persistable;
+
 import javax.persistence.*;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.LocalTime;
 
+/**
+ * One row per unzip request and per extracted file.
+ *
+ * Written once per file on the upload path, so the mapping favours inserts: keys are time-ordered UUIDs
+ * assigned here (no sequence round trip, and the key index grows at one edge), new records are persisted
+ * without the select a merge would issue first, and paths are stored inline unless they are too long.
+ * The matching Oracle DDL and migration are in db/oracle/kyc_document_unzip.sql.
+ */
 @Entity
-@Table(name = "kyc_document_unzip")
-public class KycDocumentUnzip {
+@Table(name = "kyc_document_unzip", indexes = {
+        @Index(name = "IX_KYC_UNZIP_CLIENT_LINK", columnList = "CLIENT_ID, DOCUMENT_LINK_ID, LST_UPD_DT, LST_UPD_TIME"),
+        @Index(name = "IX_KYC_UNZIP_PARENT", columnList = "PARENT_DOCUMENT_LINK_ID, KYC_UNZIP_ID")
+})
+public class KycDocumentUnzip implements Persistable<String> {
+
+    // Oracle VARCHAR2 limit in bytes; longer paths go to the CLOB column
+    public static final int MAX_INLINE_PATH_BYTES = 4000;
 
     @Id
     @Column(name = "KYC_UNZIP_ID", length = 36)
-    private String kycUnzipId = java.util.UUID.randomUUID().toString();
+    private String kycUnzipId = TimeOrderedId.next();
 
     @Column(name = "CLIENT_ID", length = 255)
     private String clientId;
@@ -33,16 +51,21 @@ public class KycDocumentUnzip {
     @Column(name = "LST_UPD_DT")
     private LocalDate lstUpdDt;
 
-    @Lob
-    @Column(name = "DOCUMENT_PATH")
+    @Column(name = "DOCUMENT_PATH", length = MAX_INLINE_PATH_BYTES)
     private String documentPath;
 
+    @Lob
+    @Column(name = "DOCUMENT_PATH_LOB")
+    private String documentPathLob;
+
     @Column(name = "STATUS")
     private Boolean status;
 
     @Column(name = "ERROR", length = 3000)
     private String error;
 
+    @Transient
+    private boolean persisted;
 
     public KycDocumentUnzip() {
     }
@@ -54,6 +77,22 @@ public class KycDocumentUnzip {
         this.lstUpdDt = LocalDate.now();
     }
 
+    @Override
+    public String getId() {
+        return kycUnzipId;
+    }
+
+    @Override
+    public boolean isNew() {
+        return !persisted;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markPersisted() {
+        persisted = true;
+    }
+
     // Getters and Setters
     public String getKycUnzipId() {
         return kycUnzipId;
@@ -120,11 +159,14 @@ public class KycDocumentUnzip {
     }
 
     public String getDocumentPath() {
-        return documentPath;
+        return documentPath != null ? documentPath : documentPathLob;
     }
 
     public void setDocumentPath(String documentPath) {
-        this.documentPath = documentPath;
+        boolean inline = documentPath == null
+                || documentPath.getBytes(StandardCharsets.UTF_8).length <= MAX_INLINE_PATH_BYTES;
+        this.documentPath = inline ? documentPath : null;
+        this.documentPathLob = inline ? null : documentPath;
     }
 
     public Boolean getStatus() {
@@ -0,0 +1,30 @@
+package com.unzipper.extract;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Where the {@link ExtractionEngine} puts the files it extracts: Documentum, a local directory, nowhere.
+ *
+ * The engine extracts each file to a temp file and hands it over with {@link #store}; the temp file is
+ * deleted once the returned future completes, so a sink that keeps the content must copy it before then.
+ * Blocking work belongs on the sink's own executor, never on the calling (extraction) thread.
+ */
+public interface EntrySink {
+
+    /**
+     * Store one extracted file.
+     *
+     * @param graph the request's task graph; long-running work should run through {@link TaskGraph#guard}
+     *              and futures not started yet should be registered with {@link TaskGraph#cancelOnFailure},
+     *              so a fail-fast cancellation reaches them
+     * @return completes with the id of the stored document, or exceptionally if it could not be stored
+     */
+    CompletableFuture<String> store(ExtractedEntry entry, TaskGraph graph);
+
+    /**
+     * Called when {@link #store} failed for a file, unless the request had already been cancelled by
+     * another failure. Runs on the thread that completed the failed future.
+     */
+    default void failed(ExtractedEntry entry, Exception error) {
+    }
+}
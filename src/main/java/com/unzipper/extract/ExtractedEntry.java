@@ -0,0 +1,41 @@
+package com.unzipper.extract;
+
+import org.apache.commons.io.FilenameUtils;
+
+import java.nio.file.Path;
+
+/**
+ * One extracted file as handed to an {@link EntrySink}.
+ */
+public class ExtractedEntry {
+
+    private final Path file;
+    private final String entryName;
+    private final String path;
+    private final long size;
+    private final long compressedSize;
+
+    ExtractedEntry(Path file, String entryName, String path, long size, long compressedSize) {
+        this.file = file;
+        this.entryName = entryName;
+        this.path = path;
+        this.size = size;
+        this.compressedSize = compressedSize;
+    }
+
+    /** Temp file holding the content; deleted once the store completes. */
+    public Path getFile() { return file; }
+
+    /** Name of the entry inside its archive, directories included. */
+    public String getEntryName() { return entryName; }
+
+    /** File name without directories. */
+    public String getFileName() { return FilenameUtils.getName(entryName); }
+
+    /** Path from the outer archive down, through any nested archives. */
+    public String getPath() { return path; }
+
+    public long getSize() { return size; }
+
+    public long getCompressedSize() { return compressedSize; }
+}
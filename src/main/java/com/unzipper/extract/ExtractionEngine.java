@@ -0,0 +1,339 @@
+package com.unzipper.extract;
+
+import com.unzipper.diagnostics.ArchiveEvent;
+import com.unzipper.diagnostics.EntryExtractionEvent;
+import com.unzipper.io.ArchivePlan;
+import com.unzipper.io.EntryExtractor;
+import com.unzipper.io.EntryFilter;
+import com.unzipper.io.SpilledArchive;
+import com.unzipper.model.ZipNode;
+import com.unzipper.storage.TempScope;
+import com.unzipper.util.InFlightWindow;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.io.FilenameUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Recursive archive extraction shared by every endpoint; what happens to each extracted file is up to
+ * the request's {@link EntrySink}.
+ *
+ * Each archive level is planned from its central directory and its entries are extracted in plan order
+ * (nested archives, then largest files first) into temp files of the request's scope. Files pass through
+ * the request's in-flight window on their way to the sink, so extraction blocks while too many of them
+ * are still on disk; nested archives are processed as tasks of their own. Results are collected in
+ * entry-indexed slots and assembled in archive order once the level is done. Entries the {@link EntryFilter}
+ * skips are never inflated; they appear in the tree marked as skipped. Under fail-fast the first
+ * failure cancels the request's {@link TaskGraph}; under best-effort failed files and nested archives
+ * are recorded in the result and the rest of the level carries on.
+ */
+@Component
+public class ExtractionEngine implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExtractionEngine.class);
+
+    private final EntryExtractor entryExtractor;
+    private final EntryFilter entryFilter;
+    private final ExecutorService executor;
+
+    public ExtractionEngine(EntryExtractor entryExtractor, EntryFilter entryFilter,
+                            @Value("${unzip.process.threads.multiplier}") int processThreadsMultiplier) {
+        this.entryExtractor = entryExtractor;
+        this.entryFilter = entryFilter;
+        // Archive levels and file IO. A ForkJoinPool, so a level joining its nested archives gets a
+        // compensating worker instead of starving the pool on deeply nested input
+        this.executor = new ForkJoinPool(Runtime.getRuntime().availableProcessors() * processThreadsMultiplier);
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Extract an archive that is already on disk, and everything nested in it, into the job's sink.
+     */
+    public ExtractionResult extract(ExtractionJob job, Path archive, String archiveName)
+            throws ExecutionException, InterruptedException {
+        long size = archive.toFile().length();
+        String childPrefix = job.isArchiveNameInPaths() ? archiveName : "";
+        return processZipFile(job, archive, archiveName, archiveName, childPrefix, size, 0).get();
+    }
+
+    private CompletableFuture<ExtractionResult> processZipFile(ExtractionJob job, Path file, String zipName,
+                                                               String nodePath, String childPrefix, long compressedSize,
+                                                               int depth) {
+        return CompletableFuture.supplyAsync(job.getGraph().guard(() -> {
+            logger.debug("Processing zip file: {}", zipName);
+            // The archive is already on disk, so read it through its central directory instead of streaming it
+            try (SpilledArchive archive = entryExtractor.open(file)) {
+                return processStream(job, archive, zipName, nodePath, childPrefix, compressedSize, depth);
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }), executor);
+    }
+
+    private ExtractionResult processStream(ExtractionJob job, SpilledArchive archive, String zipName,
+                                           String nodePath, String childPrefix, long compressedSize, int depth)
+            throws IOException, InterruptedException {
+        TempScope scope = job.getScope();
+        InFlightWindow window = job.getWindow();
+        TaskGraph graph = job.getGraph();
+        ExtractionListener listener = job.getListener();
+        EntrySink sink = job.getSink();
+
+        ArchiveEvent archiveEvent = new ArchiveEvent();
+        archiveEvent.begin();
+        archiveEvent.path = nodePath;
+        archiveEvent.depth = depth;
+        archiveEvent.compressedBytes = compressedSize;
+
+        ZipNode rootNode = new ZipNode(zipName, nodePath, compressedSize, 0, false, true);
+        // Plan the level from its central directory; nested archives add to the request's totals as they are reached
+        ArchivePlan plan = ArchivePlan.of(archive, entryFilter);
+        listener.planned(plan);
+        archiveEvent.inflatedBytes = plan.getInflatedBytes();
+        archiveEvent.entries = plan.getEntryCount();
+        // One result slot per entry, sized from the central directory. Each completion writes only its
+        // own slot and the join below publishes them all, so nothing is locked until the level is assembled
+        ExtractionResult[] slots = new ExtractionResult[plan.getEntryCount()];
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+
+        // Temp files extracted at this level; each is deleted as soon as it is stored or processed,
+        // anything left over (after a failure) is deleted when the level ends
+        List<Path> tempFilesToClean = new ArrayList<>();
+
+        try {
+            for (ArchivePlan.PlannedEntry planned : plan.getSchedule()) {
+                // Stop extracting as soon as another task of the request has failed
+                graph.checkNotCancelled();
+                ZipArchiveEntry entry = planned.getEntry();
+                final int slot = planned.getIndex();
+                final String entryName = entry.getName();
+                final String currentPath = childPrefix.isEmpty() ? entryName : childPrefix + "/" + entryName;
+                long entryCompressedSize = entry.getCompressedSize();
+
+                if (planned.isSkipped()) {
+                    slots[slot] = skipped(entry, currentPath, planned.getSkipReason());
+                    continue;
+                }
+
+                if (entry.isDirectory()) {
+                    ZipNode dirNode = new ZipNode(
+                            FilenameUtils.getName(entryName.endsWith("/") ?
+                                    entryName.substring(0, entryName.length() - 1) : entryName),
+                            currentPath,
+                            entryCompressedSize,
+                            0,
+                            true,
+                            false
+                    );
+                    slots[slot] = new ExtractionResult(dirNode);
+                    continue;
+                }
+
+                boolean isZip = planned.isNested();
+
+                // Content type rules need the first bytes; nothing is written to disk for a skipped file
+                if (!isZip && entryFilter.sniffsContent()) {
+                    String skipReason = entryFilter.skipReason(entryExtractor.head(archive, entry, EntryFilter.SNIFF_BYTES));
+                    if (skipReason != null) {
+                        listener.fileSkipped(planned.getSize());
+                        slots[slot] = skipped(entry, currentPath, skipReason);
+                        continue;
+                    }
+                }
+
+                // Nested archives are not counted: they hold no stored file, and their own entries pass through the window
+                long windowBytes = isZip ? 0 : Math.max(entry.getSize(), 0);
+                if (!isZip) {
+                    window.acquire(windowBytes);
+                }
+
+                // Create a temp file for THIS entry, sized from the central directory
+                Path tempEntryFile;
+                long actualSize;
+                EntryExtractionEvent entryEvent = new EntryExtractionEvent();
+                entryEvent.begin();
+                try {
+                    tempEntryFile = scope.newFile("entry_", entry.getSize());
+                    tempFilesToClean.add(tempEntryFile);
+                    actualSize = entryExtractor.extract(archive, entry, tempEntryFile);
+                    scope.settle(tempEntryFile);
+                    entryEvent.end();
+                    if (entryEvent.shouldCommit()) {
+                        entryEvent.path = currentPath;
+                        entryEvent.compressedBytes = entryCompressedSize;
+                        entryEvent.bytes = actualSize;
+                        entryEvent.nestedArchive = isZip;
+                        entryEvent.commit();
+                    }
+                } catch (IOException | RuntimeException e) {
+                    if (!isZip) {
+                        window.release(windowBytes);
+                    }
+                    throw e;
+                }
+
+                CompletableFuture<Void> future;
+                if (isZip) {
+                    future = processZipFile(job, tempEntryFile, FilenameUtils.getName(entryName), currentPath, currentPath,
+                            entryCompressedSize, depth + 1)
+                            .<Void>handle((result, nestedError) -> {
+                                if (nestedError == null) {
+                                    slots[slot] = result;
+                                } else if (graph.isFailFast()) {
+                                    throw new CompletionException(unwrap(nestedError));
+                                } else {
+                                    logger.error("Failed to process nested archive: {}", entryName, nestedError);
+                                    slots[slot] = ExtractionResult.failed(currentPath, unwrap(nestedError));
+                                }
+                                return null;
+                            })
+                            .whenComplete((v, e) -> scope.delete(tempEntryFile));
+                } else {
+                    ExtractedEntry extracted = new ExtractedEntry(tempEntryFile, entryName, currentPath, actualSize,
+                            entryCompressedSize);
+                    future = store(job, extracted, slot, slots)
+                            .whenComplete((v, e) -> {
+                                // Frees the window for the next entry
+                                scope.delete(tempEntryFile);
+                                window.release(windowBytes);
+                            });
+                }
+                futures.add(failFastOnError(graph, future));
+            }
+
+            // Wait for all nested archives and stores coming from this level
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+
+            ExtractionResult result = assemble(rootNode, slots);
+            archiveEvent.failed = !result.getFailed().isEmpty();
+            return result;
+
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            archiveEvent.failed = true;
+            throw e;
+        } finally {
+            archiveEvent.commit();
+            // Anything missed goes when the request scope closes
+            for (Path f : tempFilesToClean) {
+                scope.delete(f);
+            }
+        }
+    }
+
+    private CompletableFuture<Void> store(ExtractionJob job, ExtractedEntry extracted, int slot, ExtractionResult[] slots) {
+        TaskGraph graph = job.getGraph();
+        EntrySink sink = job.getSink();
+        ExtractionListener listener = job.getListener();
+        String entryName = extracted.getEntryName();
+
+        CompletableFuture<String> stored;
+        try {
+            stored = sink.store(extracted, graph);
+        } catch (RuntimeException e) {
+            stored = CompletableFuture.failedFuture(e);
+        }
+        // Cancel right away rather than once the handler below gets its turn; the file whose failure
+        // cancelled the request is still reported as failed, the others as cancelled
+        boolean[] causedCancellation = new boolean[1];
+        stored.whenComplete((docId, error) -> {
+            if (error != null && !graph.isCancelled()) {
+                causedCancellation[0] = graph.fail(new RuntimeException("Failed to store file: " + entryName, unwrap(error)));
+            }
+        });
+        return stored.handle((docId, error) -> {
+            if (error != null && graph.isCancelled() && !causedCancellation[0]) {
+                // Cancelled because another file failed first; nothing was stored for this one
+                throw new CompletionException(unwrap(error));
+            }
+            if (error == null) {
+                ZipNode fileNode = new ZipNode(extracted.getFileName(), extracted.getPath(),
+                        extracted.getCompressedSize(), extracted.getSize(), false, false);
+                fileNode.setDocumentLinkId(docId);
+                slots[slot] = new ExtractionResult(docId, fileNode);
+                listener.fileDone(extracted.getSize());
+                logger.debug("Stored file: {} as {}", entryName, docId);
+                return null;
+            }
+            Exception e = unwrap(error);
+            logger.error("Failed to store file: {}", entryName, e);
+            listener.fileFailed();
+            sink.failed(extracted, e);
+            // Fail-fast re-throws so the request fails and its other tasks are cancelled;
+            // best-effort reports the file and carries on
+            if (graph.isFailFast()) {
+                throw new RuntimeException("Failed to store file: " + entryName, e);
+            }
+            slots[slot] = ExtractionResult.failed(extracted.getPath(), e);
+            return null;
+        });
+    }
+
+    /**
+     * Cancel the request's other tasks as soon as this one fails (a no-op under best-effort).
+     */
+    private static CompletableFuture<Void> failFastOnError(TaskGraph graph, CompletableFuture<Void> future) {
+        return future.whenComplete((v, e) -> {
+            if (e != null) {
+                graph.fail(e);
+            }
+        });
+    }
+
+    private static ExtractionResult skipped(ZipArchiveEntry entry, String path, String reason) {
+        String entryName = entry.getName();
+        String name = FilenameUtils.getName(entryName.endsWith("/") ? entryName.substring(0, entryName.length() - 1) : entryName);
+        ZipNode node = new ZipNode(name, path, entry.getCompressedSize(), Math.max(entry.getSize(), 0),
+                entry.isDirectory(), false);
+        node.setSkipped(reason);
+        logger.debug("Skipped entry: {} ({})", path, reason);
+        return new ExtractionResult(node);
+    }
+
+    /**
+     * Attach the completed slots to the node as its children, in entry order, and collect their document ids.
+     */
+    private static ExtractionResult assemble(ZipNode rootNode, ExtractionResult[] slots) {
+        List<ZipNode> children = new ArrayList<>(slots.length);
+        List<String> docIds = new ArrayList<>(slots.length);
+        Map<String, String> failed = new LinkedHashMap<>();
+        for (ExtractionResult slot : slots) {
+            if (slot != null) {
+                if (slot.getNode() != null) {
+                    children.add(slot.getNode());
+                }
+                docIds.addAll(slot.getDocIds());
+                failed.putAll(slot.getFailed());
+            }
+        }
+        rootNode.setChildren(children);
+        // What was extracted; skipped entries keep their own size but do not count
+        rootNode.setSize(children.stream().filter(n -> n.getSkipped() == null).mapToLong(ZipNode::getSize).sum());
+        return new ExtractionResult(docIds, rootNode, failed);
+    }
+
+    private static Exception unwrap(Throwable t) {
+        Throwable cause = t instanceof CompletionException && t.getCause() != null ? t.getCause() : t;
+        return cause instanceof Exception ? (Exception) cause : new RuntimeException(cause);
+    }
+}
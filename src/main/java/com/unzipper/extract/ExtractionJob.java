@@ -0,0 +1,46 @@
+package com.unzipper.extract;
+
+import com.unzipper.storage.TempScope;
+import com.unzipper.util.InFlightWindow;
+
+/**
+ * Everything the {@link ExtractionEngine} needs to run one request, shared by all its archive levels.
+ */
+public class ExtractionJob {
+
+    private final TempScope scope;
+    private final EntrySink sink;
+    private final InFlightWindow window;
+    private final TaskGraph graph;
+    private final ExtractionListener listener;
+    private final boolean archiveNameInPaths;
+
+    /**
+     * @param scope              temp files of the request; extracted entries are created in it
+     * @param window             bounds the extracted files still waiting for the sink
+     * @param graph              failure policy and cancellation of the request
+     * @param archiveNameInPaths whether entry paths start with the outer archive's name
+     *                           ("a.zip/dir/file") or with the entry itself ("dir/file")
+     */
+    public ExtractionJob(TempScope scope, EntrySink sink, InFlightWindow window, TaskGraph graph,
+                         ExtractionListener listener, boolean archiveNameInPaths) {
+        this.scope = scope;
+        this.sink = sink;
+        this.window = window;
+        this.graph = graph;
+        this.listener = listener != null ? listener : ExtractionListener.NONE;
+        this.archiveNameInPaths = archiveNameInPaths;
+    }
+
+    TempScope getScope() { return scope; }
+
+    EntrySink getSink() { return sink; }
+
+    InFlightWindow getWindow() { return window; }
+
+    TaskGraph getGraph() { return graph; }
+
+    ExtractionListener getListener() { return listener; }
+
+    boolean isArchiveNameInPaths() { return archiveNameInPaths; }
+}
@@ -0,0 +1,26 @@
+package com.unzipper.extract;
+
+import com.unzipper.io.ArchivePlan;
+
+/**
+ * Progress callbacks from the {@link ExtractionEngine}; called concurrently from extraction and sink threads.
+ */
+public interface ExtractionListener {
+
+    ExtractionListener NONE = new ExtractionListener() {
+    };
+
+    /** An archive level was planned; called for the outer archive and for every nested one. */
+    default void planned(ArchivePlan plan) {
+    }
+
+    default void fileDone(long bytes) {
+    }
+
+    default void fileFailed() {
+    }
+
+    /** A file counted by its plan was skipped after all, because of its content type. */
+    default void fileSkipped(long bytes) {
+    }
+}
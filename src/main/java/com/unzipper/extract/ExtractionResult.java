@@ -0,0 +1,43 @@
+package com.unzipper.extract;
+
+import com.unzipper.model.ZipNode;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Outcome of one archive level: its node with the children in entry order, the document ids of every
+ * stored file below it, and (best-effort only) the paths that failed with their errors.
+ */
+public class ExtractionResult {
+
+    private final List<String> docIds;
+    private final ZipNode node;
+    private final Map<String, String> failed;
+
+    ExtractionResult(List<String> docIds, ZipNode node, Map<String, String> failed) {
+        this.docIds = docIds;
+        this.node = node;
+        this.failed = failed;
+    }
+
+    ExtractionResult(ZipNode node) {
+        this(Collections.emptyList(), node, Collections.emptyMap());
+    }
+
+    ExtractionResult(String docId, ZipNode node) {
+        this(Collections.singletonList(docId), node, Collections.emptyMap());
+    }
+
+    static ExtractionResult failed(String path, Throwable error) {
+        return new ExtractionResult(Collections.emptyList(), null,
+                Collections.singletonMap(path, String.valueOf(error.getMessage())));
+    }
+
+    public List<String> getDocIds() { return docIds; }
+
+    public ZipNode getNode() { return node; }
+
+    public Map<String, String> getFailed() { return failed; }
+}
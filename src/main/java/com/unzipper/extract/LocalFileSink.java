@@ -0,0 +1,41 @@
+package com.unzipper.extract;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Copies every file under a local directory at its path in the archive. The document id is that
+ * relative path. Entry paths that would resolve outside the directory are rejected.
+ */
+public class LocalFileSink implements EntrySink {
+
+    private final Path root;
+    private final Executor executor;
+
+    public LocalFileSink(Path root, Executor executor) {
+        this.root = root.toAbsolutePath().normalize();
+        this.executor = executor;
+    }
+
+    @Override
+    public CompletableFuture<String> store(ExtractedEntry entry, TaskGraph graph) {
+        return CompletableFuture.supplyAsync(graph.guard(() -> {
+            Path target = root.resolve(entry.getPath()).normalize();
+            if (!target.startsWith(root) || target.equals(root)) {
+                throw new IllegalArgumentException("Entry path escapes the output directory: " + entry.getPath());
+            }
+            try {
+                Files.createDirectories(target.getParent());
+                Files.copy(entry.getFile(), target, StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return root.relativize(target).toString();
+        }), executor);
+    }
+}
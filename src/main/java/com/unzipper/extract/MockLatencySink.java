@@ -0,0 +1,34 @@
+package com.unzipper.extract;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stands in for a remote store: every file completes after a fixed latency with an id derived from its
+ * path. The delay is a timer, not a sleeping thread, so any number of files can be "in flight" at once.
+ */
+public class MockLatencySink implements EntrySink {
+
+    private final long latencyMillis;
+    private final Executor executor;
+
+    public MockLatencySink(long latencyMillis, Executor executor) {
+        this.latencyMillis = latencyMillis;
+        this.executor = executor;
+    }
+
+    @Override
+    public CompletableFuture<String> store(ExtractedEntry entry, TaskGraph graph) {
+        Executor delayed = latencyMillis > 0
+                ? CompletableFuture.delayedExecutor(latencyMillis, TimeUnit.MILLISECONDS, executor)
+                : executor;
+        return graph.cancelOnFailure(CompletableFuture.supplyAsync(() -> mockId(entry.getPath()), delayed));
+    }
+
+    static String mockId(String path) {
+        return "DOC_" + UUID.nameUUIDFromBytes(path.getBytes(StandardCharsets.UTF_8)).toString().substring(0, 8);
+    }
+}
@@ -0,0 +1,148 @@
+package com.unzipper.extract;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Cancellation state shared by all tasks of one unzip request.
+ *
+ * Tasks run through {@link #guard} so the graph knows which threads are working for the request. Under
+ * the fail-fast policy the first failure cancels the graph: running tasks are interrupted, which also
+ * aborts their blocking Documentum calls, tasks that have not started yet fail as soon as they do, and
+ * registered futures (e.g. files waiting in a shared upload batch) are cancelled. Under best-effort the
+ * graph never cancels and failures are reported per file instead.
+ *
+ * A thread may run several guarded tasks at once: a ForkJoin worker waiting in join() runs other tasks
+ * inline, possibly of another request. Bookkeeping is per invocation, so a nested task finishing leaves
+ * the task it interrupted registered, and interrupted if its graph has been cancelled.
+ */
+public class TaskGraph {
+
+    // Graphs of the guarded tasks running on this thread, innermost last
+    private static final ThreadLocal<Deque<TaskGraph>> ACTIVE = ThreadLocal.withInitial(ArrayDeque::new);
+
+    private final boolean failFast;
+
+    // Guarded by 'this'
+    private Throwable failure;
+    // Guarded tasks running per thread
+    private final Map<Thread, Integer> running = new HashMap<>();
+    private final List<CompletableFuture<?>> cancellables = new ArrayList<>();
+
+    public TaskGraph(boolean failFast) {
+        this.failFast = failFast;
+    }
+
+    public boolean isFailFast() {
+        return failFast;
+    }
+
+    public synchronized boolean isCancelled() {
+        return failure != null;
+    }
+
+    /**
+     * Throw CancellationException if the graph has been cancelled.
+     */
+    public synchronized void checkNotCancelled() {
+        if (failure != null) {
+            throw cancelled();
+        }
+    }
+
+    /**
+     * Wrap a task so it refuses to start once the graph is cancelled and is interrupted if it is
+     * running when the graph is cancelled.
+     */
+    public <T> Supplier<T> guard(Supplier<T> task) {
+        return () -> {
+            enter();
+            try {
+                return task.get();
+            } finally {
+                exit();
+            }
+        };
+    }
+
+    /**
+     * Cancel the future if the graph is (or later gets) cancelled.
+     */
+    public <T> CompletableFuture<T> cancelOnFailure(CompletableFuture<T> future) {
+        synchronized (this) {
+            if (failure == null) {
+                cancellables.add(future);
+                return future;
+            }
+        }
+        future.cancel(false);
+        return future;
+    }
+
+    /**
+     * Record a task failure; under fail-fast the first one cancels every other task of the request.
+     *
+     * @return whether this failure is the one that cancelled the graph
+     */
+    public boolean fail(Throwable cause) {
+        if (!failFast) {
+            return false;
+        }
+        List<CompletableFuture<?>> toCancel;
+        synchronized (this) {
+            if (failure != null) {
+                return false;
+            }
+            failure = cause;
+            // Threads leave 'running' under this lock before clearing their interrupt, so none is
+            // interrupted after it has moved on to another request's task
+            running.keySet().forEach(Thread::interrupt);
+            toCancel = new ArrayList<>(cancellables);
+            cancellables.clear();
+        }
+        toCancel.forEach(f -> f.cancel(false));
+        return true;
+    }
+
+    private void enter() {
+        synchronized (this) {
+            if (failure != null) {
+                throw cancelled();
+            }
+            running.merge(Thread.currentThread(), 1, Integer::sum);
+        }
+        ACTIVE.get().addLast(this);
+    }
+
+    private void exit() {
+        synchronized (this) {
+            running.computeIfPresent(Thread.currentThread(), (thread, count) -> count > 1 ? count - 1 : null);
+        }
+        Deque<TaskGraph> active = ACTIVE.get();
+        active.removeLastOccurrence(this);
+        // Pool threads are reused, so do not carry a cancellation interrupt into the next task, but keep
+        // it for an enclosing task whose graph has been cancelled. One cancelled after this check is
+        // still registered and interrupts the thread itself.
+        Thread.interrupted();
+        for (TaskGraph outer : active) {
+            if (outer.isCancelled()) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+    }
+
+    // Guarded by 'this'
+    private CancellationException cancelled() {
+        CancellationException e = new CancellationException("Unzip cancelled after failure: " + failure.getMessage());
+        e.initCause(failure);
+        return e;
+    }
+}
@@ -0,0 +1,141 @@
+package com.unzipper.io;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.io.FilenameUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Execution plan for one archive level, built from its central directory before anything is extracted.
+ *
+ * Gives the totals needed up front (entry, file and nested archive counts, inflated bytes, largest entry)
+ * and the order to extract in: directories, then nested archives (each fans out into work of its own),
+ * then files largest first so that big entries start uploading early instead of becoming stragglers.
+ * Every planned entry keeps its index in the archive, so results can still be reported in archive order.
+ * Entries an {@link EntryFilter} skips are planned first, carry their skip reason and count in no total.
+ */
+public final class ArchivePlan {
+
+    private final List<PlannedEntry> schedule;
+    private final int fileCount;
+    private final int nestedCount;
+    private final long inflatedBytes;
+    private final long fileBytes;
+    private final long largestEntryBytes;
+
+    private ArchivePlan(List<PlannedEntry> schedule, int fileCount, int nestedCount,
+                        long inflatedBytes, long fileBytes, long largestEntryBytes) {
+        this.schedule = schedule;
+        this.fileCount = fileCount;
+        this.nestedCount = nestedCount;
+        this.inflatedBytes = inflatedBytes;
+        this.fileBytes = fileBytes;
+        this.largestEntryBytes = largestEntryBytes;
+    }
+
+    public static ArchivePlan of(SpilledArchive archive) {
+        return of(archive, null);
+    }
+
+    public static ArchivePlan of(SpilledArchive archive, EntryFilter filter) {
+        List<ZipArchiveEntry> entries = archive.entries();
+        List<PlannedEntry> schedule = new ArrayList<>(entries.size());
+        int fileCount = 0;
+        int nestedCount = 0;
+        long inflatedBytes = 0;
+        long fileBytes = 0;
+        long largestEntryBytes = 0;
+        for (int i = 0; i < entries.size(); i++) {
+            ZipArchiveEntry entry = entries.get(i);
+            // Entries of unknown size count with their compressed size
+            long size = entry.getSize() >= 0 ? entry.getSize() : Math.max(entry.getCompressedSize(), 0);
+            boolean nested = !entry.isDirectory() && isArchive(entry.getName());
+            String skipReason = filter != null ? filter.skipReason(entry, nested) : null;
+            schedule.add(new PlannedEntry(i, entry, size, nested, skipReason));
+            if (skipReason != null) {
+                continue;
+            }
+            inflatedBytes += size;
+            largestEntryBytes = Math.max(largestEntryBytes, size);
+            if (nested) {
+                nestedCount++;
+            } else if (!entry.isDirectory()) {
+                fileCount++;
+                fileBytes += size;
+            }
+        }
+        schedule.sort(Comparator.comparingInt(ArchivePlan::rank)
+                .thenComparing(Comparator.comparingLong(PlannedEntry::getSize).reversed())
+                .thenComparingInt(PlannedEntry::getIndex));
+        return new ArchivePlan(Collections.unmodifiableList(schedule), fileCount, nestedCount,
+                inflatedBytes, fileBytes, largestEntryBytes);
+    }
+
+    /**
+     * Whether an entry of this name is processed as a nested archive.
+     */
+    public static boolean isArchive(String entryName) {
+        return FilenameUtils.getExtension(entryName).equalsIgnoreCase("zip");
+    }
+
+    private static int rank(PlannedEntry planned) {
+        if (planned.isSkipped() || planned.getEntry().isDirectory()) {
+            return 0;
+        }
+        return planned.isNested() ? 1 : 2;
+    }
+
+    /**
+     * All entries in the order they should be extracted.
+     */
+    public List<PlannedEntry> getSchedule() { return schedule; }
+
+    public int getEntryCount() { return schedule.size(); }
+
+    /** Files to upload at this level, not counting nested archives, directories or skipped entries. */
+    public int getFileCount() { return fileCount; }
+
+    public int getNestedCount() { return nestedCount; }
+
+    /** Uncompressed size of every entry, nested archives included as stored. */
+    public long getInflatedBytes() { return inflatedBytes; }
+
+    /** Uncompressed size of the files to upload at this level. */
+    public long getFileBytes() { return fileBytes; }
+
+    public long getLargestEntryBytes() { return largestEntryBytes; }
+
+    public static final class PlannedEntry {
+        private final int index;
+        private final ZipArchiveEntry entry;
+        private final long size;
+        private final boolean nested;
+        private final String skipReason;
+
+        PlannedEntry(int index, ZipArchiveEntry entry, long size, boolean nested, String skipReason) {
+            this.index = index;
+            this.entry = entry;
+            this.size = size;
+            this.nested = nested;
+            this.skipReason = skipReason;
+        }
+
+        /** Position of the entry in the archive. */
+        public int getIndex() { return index; }
+
+        public ZipArchiveEntry getEntry() { return entry; }
+
+        /** Uncompressed size from the central directory. */
+        public long getSize() { return size; }
+
+        public boolean isNested() { return nested; }
+
+        public boolean isSkipped() { return skipReason != null; }
+
+        /** Why the filter skips the entry, null if it is extracted. */
+        public String getSkipReason() { return skipReason; }
+    }
+}
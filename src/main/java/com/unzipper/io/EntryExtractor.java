@@ -0,0 +1,300 @@
+package com.unzipper.io;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+/**
+ * Extracts zip entries from an archive that is already on disk, without per-entry allocation.
+ *
+ * Stored entries are copied file-to-file with {@link FileChannel#transferTo}. Deflated entries are
+ * inflated by a pooled {@link Inflater} into a pooled direct buffer and written to the target channel;
+ * their input comes straight from a memory mapping of the archive when it is large enough to be mapped,
+ * otherwise from positional reads into a second pooled direct buffer. Either way no bytes pass through
+ * the Java heap. Other compression methods fall back to commons-compress streams and
+ * {@link FileChannel#transferFrom}. As with java.util.zip, every entry's CRC-32 and size are checked
+ * against its central directory record, so truncated or corrupt entries fail with a ZipException.
+ */
+@Component
+public class EntryExtractor implements DisposableBean {
+
+    private final int bufferSize;
+    private final int maxPooled;
+    private final long mmapMinBytes;
+    private final ConcurrentLinkedDeque<Scratch> pool = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger pooled = new AtomicInteger();
+
+    public EntryExtractor(@Value("${unzip.buffer.size}") int bufferSize,
+                          @Value("${unzip.buffer.pool.max}") int maxPooled,
+                          @Value("${unzip.mmap.min-bytes}") long mmapMinBytes) {
+        this.bufferSize = bufferSize;
+        this.maxPooled = maxPooled;
+        this.mmapMinBytes = mmapMinBytes;
+    }
+
+    @Override
+    public void destroy() {
+        Scratch scratch;
+        while ((scratch = pool.poll()) != null) {
+            scratch.inflater.end();
+        }
+    }
+
+    /**
+     * Open a spilled zip archive for random access. Archives of at least {@code unzip.mmap.min-bytes}
+     * are also memory mapped, so their entries are inflated from the page cache without read copies.
+     */
+    public SpilledArchive open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        MappedFile mapping = null;
+        try {
+            if (channel.size() >= mmapMinBytes) {
+                mapping = MappedFile.map(channel);
+            }
+            ZipFile zipFile = ZipFile.builder().setSeekableByteChannel(channel).get();
+            return new SpilledArchive(channel, zipFile, mapping);
+        } catch (IOException | RuntimeException e) {
+            if (mapping != null) {
+                mapping.close();
+            }
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Extract one entry to {@code target} and return the number of bytes written. Throws ZipException if
+     * the extracted bytes do not match the entry's CRC-32 or size.
+     */
+    public long extract(SpilledArchive spilled, ZipArchiveEntry entry, Path target) throws IOException {
+        ZipFile zipFile = spilled.zipFile;
+        FileChannel archive = spilled.channel;
+        if (!zipFile.canReadEntryData(entry)) {
+            throw new ZipException("Unsupported compression method or encryption for entry: " + entry.getName());
+        }
+        Scratch scratch = acquire();
+        try (FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            CRC32 crc = scratch.crc;
+            long written;
+            switch (entry.getMethod()) {
+                case ZipEntry.STORED:
+                    if (entry.getSize() != -1 && entry.getCompressedSize() > entry.getSize()) {
+                        // The stored bytes are the entry, so the overrun is known before copying any
+                        throw tooLarge(entry);
+                    }
+                    written = transfer(archive, entry.getDataOffset(), entry.getCompressedSize(), out);
+                    // transferTo never passes the bytes through us, so they are checksummed from the archive
+                    checksum(spilled, entry.getDataOffset(), written, scratch);
+                    break;
+                case ZipEntry.DEFLATED:
+                    written = inflate(spilled, entry, out, scratch);
+                    break;
+                default:
+                    try (InputStream in = new CheckedInputStream(zipFile.getInputStream(entry), crc);
+                         ReadableByteChannel source = Channels.newChannel(in)) {
+                        written = transferFrom(source, out, entry);
+                    }
+            }
+            verify(entry, written, crc.getValue());
+            return written;
+        } finally {
+            release(scratch);
+        }
+    }
+
+    /**
+     * Extraction stops as soon as an entry outgrows its declared size: the in-flight window, temp quota and
+     * admission control all reserved for that size, so it must not be written first and rejected after.
+     */
+    private static ZipException tooLarge(ZipArchiveEntry entry) {
+        return new ZipException("Invalid entry size for " + entry.getName() + " (more than the "
+                + entry.getSize() + " bytes declared)");
+    }
+
+    private static void verify(ZipArchiveEntry entry, long written, long crc) throws ZipException {
+        // -1 where the archive does not record them
+        if (entry.getSize() != -1 && written != entry.getSize()) {
+            throw new ZipException("Invalid entry size for " + entry.getName() + " (expected " + entry.getSize()
+                    + " but got " + written + " bytes)");
+        }
+        if (entry.getCrc() != -1 && crc != entry.getCrc()) {
+            throw new ZipException(String.format("Invalid entry CRC for %s (expected 0x%x but got 0x%x)",
+                    entry.getName(), entry.getCrc(), crc));
+        }
+    }
+
+    /**
+     * Read up to {@code length} bytes from the start of an entry, inflating no more than needed for them.
+     */
+    public byte[] head(SpilledArchive spilled, ZipArchiveEntry entry, int length) throws IOException {
+        if (!spilled.zipFile.canReadEntryData(entry)) {
+            throw new ZipException("Unsupported compression method or encryption for entry: " + entry.getName());
+        }
+        try (InputStream in = spilled.zipFile.getInputStream(entry)) {
+            return in.readNBytes(length);
+        }
+    }
+
+    private long transfer(FileChannel archive, long position, long count, FileChannel out) throws IOException {
+        long written = 0;
+        while (written < count) {
+            long n = archive.transferTo(position + written, count - written, out);
+            if (n <= 0) {
+                throw new EOFException("Unexpected end of archive while copying stored entry");
+            }
+            written += n;
+        }
+        return written;
+    }
+
+    private void checksum(SpilledArchive spilled, long position, long count, Scratch scratch) throws IOException {
+        if (spilled.mapping != null && position + count <= spilled.mapping.size()) {
+            scratch.crc.update(spilled.mapping.slice(position, count));
+            return;
+        }
+        ByteBuffer in = scratch.input;
+        while (count > 0) {
+            in.clear();
+            if (count < in.capacity()) {
+                in.limit((int) count);
+            }
+            int n = spilled.channel.read(in, position);
+            if (n < 0) {
+                throw new EOFException("Unexpected end of archive while checksumming stored entry");
+            }
+            position += n;
+            count -= n;
+            in.flip();
+            scratch.crc.update(in);
+        }
+    }
+
+    private long transferFrom(ReadableByteChannel source, FileChannel out, ZipArchiveEntry entry) throws IOException {
+        long size = entry.getSize();
+        long written = 0;
+        long n;
+        // One byte past the declared size is enough to tell that it is exceeded
+        while ((n = out.transferFrom(source, written, size == -1 ? bufferSize : Math.min(bufferSize, size - written + 1))) > 0) {
+            written += n;
+            if (size != -1 && written > size) {
+                throw tooLarge(entry);
+            }
+        }
+        return written;
+    }
+
+    private long inflate(SpilledArchive spilled, ZipArchiveEntry entry, FileChannel out, Scratch scratch) throws IOException {
+        try {
+            Inflater inflater = scratch.inflater;
+            ByteBuffer in = scratch.input;
+            ByteBuffer buf = scratch.output;
+            long position = entry.getDataOffset();
+            long remaining = entry.getCompressedSize();
+            long size = entry.getSize();
+            boolean paddingFed = false;
+            long written = 0;
+
+            if (spilled.mapping != null && remaining > 0 && position + remaining <= spilled.mapping.size()) {
+                // The whole compressed region is one slice of the mapping
+                inflater.setInput(spilled.mapping.slice(position, remaining));
+                remaining = 0;
+            }
+
+            while (!inflater.finished()) {
+                if (inflater.needsInput()) {
+                    if (remaining > 0) {
+                        in.clear();
+                        if (remaining < in.capacity()) {
+                            in.limit((int) remaining);
+                        }
+                        int n = spilled.channel.read(in, position);
+                        if (n < 0) {
+                            throw new EOFException("Unexpected end of archive in entry: " + entry.getName());
+                        }
+                        position += n;
+                        remaining -= n;
+                        in.flip();
+                        inflater.setInput(in);
+                    } else if (!paddingFed) {
+                        // Raw inflate may ask for one byte past the data, as java.util.zip.ZipFile does
+                        inflater.setInput(scratch.padding, 0, 1);
+                        paddingFed = true;
+                    } else {
+                        throw new EOFException("Unexpected end of deflated data in entry: " + entry.getName());
+                    }
+                }
+                buf.clear();
+                int produced = inflater.inflate(buf);
+                if (produced == 0 && inflater.needsDictionary()) {
+                    throw new ZipException("Deflated entry requires a preset dictionary: " + entry.getName());
+                }
+                buf.flip();
+                if (size != -1 && written + buf.remaining() > size) {
+                    throw tooLarge(entry);
+                }
+                scratch.crc.update(buf.duplicate());
+                while (buf.hasRemaining()) {
+                    written += out.write(buf);
+                }
+            }
+            return written;
+        } catch (DataFormatException e) {
+            throw new ZipException("Invalid deflated data in entry " + entry.getName() + ": " + e.getMessage());
+        }
+    }
+
+    private Scratch acquire() {
+        Scratch scratch = pool.pollFirst();
+        if (scratch != null) {
+            pooled.decrementAndGet();
+            return scratch;
+        }
+        return new Scratch(bufferSize);
+    }
+
+    private void release(Scratch scratch) {
+        scratch.inflater.reset();
+        scratch.crc.reset();
+        if (pooled.incrementAndGet() <= maxPooled) {
+            // LIFO keeps the most recently used (cache-warm) buffers in circulation
+            pool.offerFirst(scratch);
+        } else {
+            pooled.decrementAndGet();
+            scratch.inflater.end();
+        }
+    }
+
+    private static final class Scratch {
+        final Inflater inflater = new Inflater(true);
+        final CRC32 crc = new CRC32();
+        final ByteBuffer input;
+        final ByteBuffer output;
+        final byte[] padding = new byte[1];
+
+        Scratch(int bufferSize) {
+            this.input = ByteBuffer.allocateDirect(bufferSize);
+            this.output = ByteBuffer.allocateDirect(bufferSize);
+        }
+    }
+}
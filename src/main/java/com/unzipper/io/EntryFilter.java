@@ -0,0 +1,241 @@
+package com.unzipper.io;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.io.FilenameUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.FileSystems;
+import java.nio.file.InvalidPathException;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Include/exclude rules deciding which archive entries are extracted at all. Skipped entries cost no
+ * inflation, temp disk, upload or database record; they only show up in the tree.
+ *
+ * Name, extension and size rules are decided from the central directory when an archive level is planned.
+ * Content type rules need the first bytes of the entry ({@link #SNIFF_BYTES}), so they are checked just
+ * before extraction, and only when some are configured. Globs are matched case-insensitively and, as in
+ * .gitignore, a glob without '/' matches any file or directory name along the entry path ("Thumbs.db",
+ * "__MACOSX" skips everything below that directory), one with '/' the whole path ("docs/*.tmp").
+ * Nested archives are only subject to the exclude globs; they are always opened otherwise.
+ */
+@Component
+public class EntryFilter {
+
+    /** Bytes read from an entry to detect its content type. */
+    public static final int SNIFF_BYTES = 16;
+
+    private static final String UNKNOWN_CONTENT_TYPE = "application/octet-stream";
+
+    private final boolean enabled;
+    private final List<Glob> includeGlobs;
+    private final List<Glob> excludeGlobs;
+    private final Set<String> includeExtensions;
+    private final Set<String> excludeExtensions;
+    private final Set<String> includeContentTypes;
+    private final Set<String> excludeContentTypes;
+    private final long minBytes;
+    private final long maxBytes;
+
+    public EntryFilter(@Value("${unzip.filter.enabled}") boolean enabled,
+                       @Value("${unzip.filter.include-globs}") String includeGlobs,
+                       @Value("${unzip.filter.exclude-globs}") String excludeGlobs,
+                       @Value("${unzip.filter.include-extensions}") String includeExtensions,
+                       @Value("${unzip.filter.exclude-extensions}") String excludeExtensions,
+                       @Value("${unzip.filter.include-content-types}") String includeContentTypes,
+                       @Value("${unzip.filter.exclude-content-types}") String excludeContentTypes,
+                       @Value("${unzip.filter.min-bytes}") long minBytes,
+                       @Value("${unzip.filter.max-bytes}") long maxBytes) {
+        this.enabled = enabled;
+        this.includeGlobs = globs(includeGlobs);
+        this.excludeGlobs = globs(excludeGlobs);
+        this.includeExtensions = extensions(includeExtensions);
+        this.excludeExtensions = extensions(excludeExtensions);
+        this.includeContentTypes = list(includeContentTypes);
+        this.excludeContentTypes = list(excludeContentTypes);
+        this.minBytes = minBytes;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Why an entry is skipped based on its central directory record, or null if it is extracted.
+     */
+    public String skipReason(ZipArchiveEntry entry, boolean nested) {
+        if (!enabled) {
+            return null;
+        }
+        String name = entry.getName().toLowerCase(Locale.ROOT);
+        for (Glob glob : excludeGlobs) {
+            if (glob.matches(name)) {
+                return "excluded by " + glob.pattern;
+            }
+        }
+        if (entry.isDirectory() || nested) {
+            return null;
+        }
+        if (!includeGlobs.isEmpty() && includeGlobs.stream().noneMatch(g -> g.matches(name))) {
+            return "not included by name";
+        }
+        String extension = FilenameUtils.getExtension(name);
+        if (excludeExtensions.contains(extension)) {
+            return "excluded extension " + extension;
+        }
+        if (!includeExtensions.isEmpty() && !includeExtensions.contains(extension)) {
+            return "not included by extension";
+        }
+        // Unknown sizes (-1) are not judged
+        long size = entry.getSize();
+        if (size >= 0 && size < minBytes) {
+            return size == 0 ? "empty" : "smaller than " + minBytes + " bytes";
+        }
+        if (size >= 0 && maxBytes > 0 && size > maxBytes) {
+            return "larger than " + maxBytes + " bytes";
+        }
+        return null;
+    }
+
+    /**
+     * Whether files need their first bytes read for {@link #skipReason(byte[])}.
+     */
+    public boolean sniffsContent() {
+        return enabled && (!includeContentTypes.isEmpty() || !excludeContentTypes.isEmpty());
+    }
+
+    /**
+     * Why a file is skipped based on its first bytes, or null if it is extracted.
+     */
+    public String skipReason(byte[] head) {
+        String contentType = contentType(head);
+        if (excludeContentTypes.contains(contentType)) {
+            return "excluded content type " + contentType;
+        }
+        if (!includeContentTypes.isEmpty() && !includeContentTypes.contains(contentType)) {
+            return "not included by content type " + contentType;
+        }
+        return null;
+    }
+
+    /**
+     * Content type from magic bytes, for the formats that turn up in KYC archives;
+     * application/octet-stream for anything else.
+     */
+    static String contentType(byte[] head) {
+        if (startsWith(head, '%', 'P', 'D', 'F')) {
+            return "application/pdf";
+        }
+        if (startsWith(head, 0x89, 'P', 'N', 'G')) {
+            return "image/png";
+        }
+        if (startsWith(head, 0xFF, 0xD8, 0xFF)) {
+            return "image/jpeg";
+        }
+        if (startsWith(head, 'G', 'I', 'F', '8')) {
+            return "image/gif";
+        }
+        if (startsWith(head, 'I', 'I', 0x2A, 0x00) || startsWith(head, 'M', 'M', 0x00, 0x2A)) {
+            return "image/tiff";
+        }
+        if (startsWith(head, 'B', 'M')) {
+            return "image/bmp";
+        }
+        if (startsWith(head, 'R', 'I', 'F', 'F') && head.length >= 12
+                && head[8] == 'W' && head[9] == 'E' && head[10] == 'B' && head[11] == 'P') {
+            return "image/webp";
+        }
+        if (startsWith(head, 'P', 'K', 0x03, 0x04)) {
+            // Also docx/xlsx and other OOXML documents
+            return "application/zip";
+        }
+        if (startsWith(head, 0xD0, 0xCF, 0x11, 0xE0)) {
+            // Legacy Office documents (doc, xls, ppt) and msg
+            return "application/x-ole-storage";
+        }
+        if (startsWith(head, '{', '\\', 'r', 't', 'f')) {
+            return "application/rtf";
+        }
+        if (startsWith(head, 'M', 'Z')) {
+            return "application/x-msdownload";
+        }
+        if (startsWith(head, 0x7F, 'E', 'L', 'F')) {
+            return "application/x-elf";
+        }
+        return UNKNOWN_CONTENT_TYPE;
+    }
+
+    private static boolean startsWith(byte[] head, int... magic) {
+        if (head.length < magic.length) {
+            return false;
+        }
+        for (int i = 0; i < magic.length; i++) {
+            if ((head[i] & 0xFF) != magic[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static List<Glob> globs(String patterns) {
+        List<Glob> globs = new ArrayList<>();
+        for (String pattern : list(patterns)) {
+            globs.add(new Glob(pattern));
+        }
+        return globs;
+    }
+
+    private static Set<String> extensions(String extensions) {
+        Set<String> result = new LinkedHashSet<>();
+        for (String extension : list(extensions)) {
+            result.add(extension.startsWith(".") ? extension.substring(1) : extension);
+        }
+        return result;
+    }
+
+    private static Set<String> list(String value) {
+        Set<String> result = new LinkedHashSet<>();
+        if (value != null) {
+            Arrays.stream(value.split(","))
+                    .map(s -> s.trim().toLowerCase(Locale.ROOT))
+                    .filter(s -> !s.isEmpty())
+                    .forEach(result::add);
+        }
+        return result;
+    }
+
+    private static final class Glob {
+        final String pattern;
+        final PathMatcher matcher;
+        final boolean wholePath;
+
+        Glob(String pattern) {
+            this.pattern = pattern;
+            this.matcher = FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+            this.wholePath = pattern.contains("/");
+        }
+
+        boolean matches(String entryName) {
+            String name = entryName.endsWith("/") ? entryName.substring(0, entryName.length() - 1) : entryName;
+            try {
+                if (wholePath) {
+                    return matcher.matches(Paths.get(name));
+                }
+                for (String segment : name.split("/")) {
+                    if (!segment.isEmpty() && matcher.matches(Paths.get(segment))) {
+                        return true;
+                    }
+                }
+                return false;
+            } catch (InvalidPathException e) {
+                // Names the file system cannot represent are matched by nothing
+                return false;
+            }
+        }
+    }
+}
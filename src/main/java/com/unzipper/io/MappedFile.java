@@ -0,0 +1,125 @@
+package com.unzipper.io;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A read-only memory mapping of a spilled file, unmapped eagerly on {@link #close()}.
+ *
+ * Mappings are normally released only when the buffer is garbage collected, which would keep deleted
+ * temp files pinned on disk until the next GC. Closing unmaps right away, so callers must not touch
+ * buffers obtained from {@link #slice} afterwards. Readers that may race with close, e.g. encode tasks
+ * still running when an upload is cancelled, hold the mapping with {@link #acquire()} while they read:
+ * the unmap is then deferred until the last of them has called {@link #release()}.
+ */
+public final class MappedFile implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(MappedFile.class);
+    private static final Unmapper UNMAPPER = Unmapper.lookup();
+
+    private final MappedByteBuffer buffer;
+    private volatile boolean closed;
+    // Readers holding the mapping, plus one for the owner until close
+    private final AtomicInteger references = new AtomicInteger(1);
+
+    private MappedFile(MappedByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    /**
+     * Map the whole channel, or return null when it is too large for a single mapping.
+     */
+    public static MappedFile map(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size > Integer.MAX_VALUE) {
+            return null;
+        }
+        return new MappedFile(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+    }
+
+    public long size() {
+        return buffer.capacity();
+    }
+
+    /**
+     * An independent view of {@code length} bytes starting at {@code position}.
+     */
+    public ByteBuffer slice(long position, long length) {
+        return buffer.slice((int) position, (int) length);
+    }
+
+    /**
+     * Keep the mapping from being unmapped until {@link #release()}. Returns false once the mapping is
+     * closed, in which case it must not be read.
+     */
+    public boolean acquire() {
+        if (closed) {
+            return false;
+        }
+        for (;;) {
+            int count = references.get();
+            if (count == 0) {
+                return false;
+            }
+            if (references.compareAndSet(count, count + 1)) {
+                return true;
+            }
+        }
+    }
+
+    public void release() {
+        if (references.decrementAndGet() == 0) {
+            UNMAPPER.unmap(buffer);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            release();
+        }
+    }
+
+    private static final class Unmapper {
+        private final Object unsafe;
+        private final Method invokeCleaner;
+
+        private Unmapper(Object unsafe, Method invokeCleaner) {
+            this.unsafe = unsafe;
+            this.invokeCleaner = invokeCleaner;
+        }
+
+        static Unmapper lookup() {
+            try {
+                // sun.misc.Unsafe lives in jdk.unsupported, which is readable without --add-opens
+                Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+                Field field = unsafeClass.getDeclaredField("theUnsafe");
+                field.setAccessible(true);
+                return new Unmapper(field.get(null), unsafeClass.getMethod("invokeCleaner", ByteBuffer.class));
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                logger.warn("Eager unmapping unavailable, mappings will be released by GC: {}", e.toString());
+                return new Unmapper(null, null);
+            }
+        }
+
+        void unmap(ByteBuffer buffer) {
+            if (invokeCleaner == null) {
+                return;
+            }
+            try {
+                invokeCleaner.invoke(unsafe, buffer);
+            } catch (ReflectiveOperationException e) {
+                logger.debug("Failed to unmap buffer", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.unzipper.io;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Base64 codec stage for Documentum payloads that splits large payloads into aligned blocks and
+ * codes them in parallel on a dedicated ForkJoin pool.
+ *
+ * Encoding splits the raw bytes at multiples of 3 and decoding splits the text at multiples of 4, so
+ * every block codes independently and the blocks concatenate to exactly the single-threaded result.
+ * Encoded blocks are emitted in order; decoded blocks are written at their final file offsets.
+ * Payloads below the parallel threshold (or with parallelism 1) take the sequential path.
+ */
+@Component
+public class ParallelBase64 implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(ParallelBase64.class);
+
+    // Raw bytes per encoded chunk on the sequential path; a multiple of 3 so chunks encode without padding
+    private static final int SEQUENTIAL_CHUNK_BYTES = 3 * 16 * 1024;
+
+    private final int parallelism;
+    private final long parallelMinBytes;
+    // long, so block positions are computed without overflow
+    private final long blockBytes;
+    private final ForkJoinPool pool;
+    private final Scheduler scheduler;
+
+    public ParallelBase64(@Value("${documentum.base64.parallelism}") int parallelism,
+                          @Value("${documentum.base64.parallel-min-bytes}") long parallelMinBytes,
+                          @Value("${documentum.base64.block-bytes}") int blockBytes) {
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.parallelMinBytes = parallelMinBytes;
+        // Align to 12 so a block is a whole number of both raw (3) and encoded (4) quanta
+        this.blockBytes = Math.max(12, blockBytes - blockBytes % 12);
+        this.pool = new ForkJoinPool(this.parallelism);
+        this.scheduler = Schedulers.fromExecutorService(pool, "base64");
+        logger.info("Base64 codec: parallelism {}, parallel from {} bytes, block {} bytes",
+                this.parallelism, parallelMinBytes, this.blockBytes);
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.dispose();
+        pool.shutdownNow();
+    }
+
+    /**
+     * Whether a payload of this many bytes (raw or encoded) is coded in parallel.
+     */
+    public boolean isParallel(long bytes) {
+        return parallelism > 1 && bytes >= parallelMinBytes;
+    }
+
+    /**
+     * Base64-encode the whole file as an ordered stream of buffers.
+     * Closing the source early, e.g. when the upload is cancelled, fails the blocks not yet read.
+     */
+    public Flux<DataBuffer> encode(SpilledFile source) {
+        return encode(source, 0, source.size());
+    }
+
+    /**
+     * Base64-encode {@code [offset, offset + size)} of the file, e.g. one part of a chunked upload.
+     * Closing the source early, e.g. when the upload is cancelled, fails the blocks not yet read.
+     */
+    public Flux<DataBuffer> encode(SpilledFile source, long offset, long size) {
+        Base64.Encoder encoder = Base64.getEncoder();
+        if (!isParallel(size)) {
+            return Flux.<DataBuffer, Long>generate(() -> 0L, (position, sink) -> {
+                if (position >= size) {
+                    sink.complete();
+                    return position;
+                }
+                int length = Math.toIntExact(Math.min(SEQUENTIAL_CHUNK_BYTES, size - position));
+                try {
+                    ByteBuffer encoded = source.read(offset + position, length, bytes -> encoder.encode(bytes));
+                    sink.next(DefaultDataBufferFactory.sharedInstance.wrap(encoded));
+                } catch (IOException e) {
+                    sink.error(new UncheckedIOException(e));
+                }
+                return position + length;
+            });
+        }
+        long blocks = (size + blockBytes - 1) / blockBytes;
+        // At most 'parallelism' blocks in flight, so memory stays bounded while output stays in order
+        return Flux.range(0, Math.toIntExact(blocks))
+                .flatMapSequential(i -> Mono.fromCallable(() -> {
+                    long position = i * blockBytes;
+                    int length = Math.toIntExact(Math.min(blockBytes, size - position));
+                    // Still running when a cancelled upload closes the source; the read holds the mapping
+                    ByteBuffer encoded = source.read(offset + position, length, bytes -> encoder.encode(bytes));
+                    return DefaultDataBufferFactory.sharedInstance.wrap(encoded);
+                }).subscribeOn(scheduler), parallelism, 1);
+    }
+
+    /**
+     * Decode the Base64 text in {@code [start, end)} of {@code source} into {@code target} and return
+     * the decoded length. Throws IllegalArgumentException if the region is not plain Base64 (for example
+     * JSON escapes), in which case the target content is undefined and the caller should fall back.
+     */
+    public long decode(SpilledFile source, long start, long end, Path target) throws IOException {
+        long length = end - start;
+        if (length % 4 != 0) {
+            throw new IllegalArgumentException("Base64 text length " + length + " is not a multiple of 4");
+        }
+        long blocks = (length + blockBytes - 1) / blockBytes;
+        Base64.Decoder decoder = Base64.getDecoder();
+
+        try (FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            List<Callable<Integer>> tasks = new ArrayList<>();
+            for (long i = 0; i < blocks; i++) {
+                long offset = i * blockBytes;
+                int blockLength = Math.toIntExact(Math.min(blockBytes, length - offset));
+                long outPosition = offset / 4 * 3;
+                tasks.add(() -> {
+                    ByteBuffer decoded = source.read(start + offset, blockLength, bytes -> decoder.decode(bytes));
+                    int written = decoded.remaining();
+                    long position = outPosition;
+                    while (decoded.hasRemaining()) {
+                        position += out.write(decoded, position);
+                    }
+                    return written;
+                });
+            }
+            long decodedBytes = 0;
+            for (Future<Integer> result : pool.invokeAll(tasks)) {
+                decodedBytes += result.get();
+            }
+            return decodedBytes;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IllegalArgumentException) {
+                throw (IllegalArgumentException) cause;
+            }
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Parallel Base64 decode failed", cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted during Base64 decode", e);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.unzipper.io;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A zip archive that has been spilled to disk, opened for random access through its central directory.
+ * Obtained from {@link EntryExtractor#open}; entries are extracted with {@link EntryExtractor#extract}.
+ */
+public final class SpilledArchive implements Closeable {
+
+    final FileChannel channel;
+    final ZipFile zipFile;
+    final MappedFile mapping; // null for small archives and archives too large to map
+
+    SpilledArchive(FileChannel channel, ZipFile zipFile, MappedFile mapping) {
+        this.channel = channel;
+        this.zipFile = zipFile;
+        this.mapping = mapping;
+    }
+
+    /**
+     * Entries in the order they are stored, which keeps reads of the archive sequential.
+     */
+    public List<ZipArchiveEntry> entries() {
+        return Collections.list(zipFile.getEntriesInPhysicalOrder());
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (mapping != null) {
+                mapping.close();
+            }
+        } finally {
+            // Closes the shared channel too
+            zipFile.close();
+        }
+    }
+}
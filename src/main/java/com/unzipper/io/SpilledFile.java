@@ -0,0 +1,91 @@
+package com.unzipper.io;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Random-access reads of a file that has been spilled to disk, e.g. an extracted entry about to be uploaded.
+ *
+ * Files of at least the mapping threshold are memory mapped and reads return views of the mapping, so
+ * large files cost page cache rather than heap. Smaller files are read with positional channel reads.
+ * Reads are independent of each other and may be issued from several threads, also concurrently with
+ * {@link #close()}: a mapping is only unmapped once the reads in progress are done with it.
+ */
+public final class SpilledFile implements Closeable {
+
+    private final FileChannel channel;
+    private final MappedFile mapping;
+    private final long size;
+
+    private SpilledFile(FileChannel channel, MappedFile mapping, long size) {
+        this.channel = channel;
+        this.mapping = mapping;
+        this.size = size;
+    }
+
+    public static SpilledFile open(Path file, long mmapMinBytes) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            MappedFile mapping = size >= mmapMinBytes ? MappedFile.map(channel) : null;
+            return new SpilledFile(channel, mapping, size);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Hand {@code length} bytes at {@code position} to the reader and return its result. The buffer is
+     * only valid while the reader runs and must not escape it. Throws ClosedChannelException once closed.
+     */
+    public <T> T read(long position, int length, Reader<T> reader) throws IOException {
+        if (mapping == null) {
+            return reader.read(readChannel(position, length));
+        }
+        if (!mapping.acquire()) {
+            throw new ClosedChannelException();
+        }
+        try {
+            return reader.read(mapping.slice(position, length));
+        } finally {
+            mapping.release();
+        }
+    }
+
+    private ByteBuffer readChannel(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Unexpected end of file at " + (position + buffer.position()));
+            }
+        }
+        return buffer.flip();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (mapping != null) {
+                mapping.close();
+            }
+        } finally {
+            channel.close();
+        }
+    }
+
+    @FunctionalInterface
+    public interface Reader<T> {
+        T read(ByteBuffer bytes) throws IOException;
+    }
+}
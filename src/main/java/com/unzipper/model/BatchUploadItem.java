@@ -0,0 +1,21 @@
+package com.unzipper.model;
+
+import java.nio.file.Path;
+
+public class BatchUploadItem {
+    private String filename;
+    private Path file;
+
+    public BatchUploadItem(String filename, Path file) {
+        this.filename = filename;
+        this.file = file;
+    }
+
+    public String getFilename() {
+        return filename;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+}
@@ -0,0 +1,27 @@
+package com.unzipper.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * One document of a bulk unzip request.
+ */
+public class BulkUnzipItem {
+    @JsonProperty("client_id")
+    private String clientId;
+
+    @JsonProperty("document_link_id")
+    private String documentLinkId;
+
+    public BulkUnzipItem() {}
+
+    public BulkUnzipItem(String clientId, String documentLinkId) {
+        this.clientId = clientId;
+        this.documentLinkId = documentLinkId;
+    }
+
+    public String getClientId() { return clientId; }
+    public void setClientId(String clientId) { this.clientId = clientId; }
+
+    public String getDocumentLinkId() { return documentLinkId; }
+    public void setDocumentLinkId(String documentLinkId) { this.documentLinkId = documentLinkId; }
+}
@@ -0,0 +1,51 @@
+package com.unzipper.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * The outcome of one document of a bulk unzip request, streamed as one line once it finishes.
+ */
+public class BulkUnzipResult {
+    @JsonProperty("client_id")
+    private String clientId;
+
+    @JsonProperty("document_link_id")
+    private String documentLinkId;
+
+    // OK, FAILED, or REJECTED when admission control kept turning the document away
+    @JsonProperty("status")
+    private String status;
+
+    // What the single-document endpoint answers; only present when OK
+    @JsonProperty("detail")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private UnzipDetail detail;
+
+    @JsonProperty("error")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String error;
+
+    @JsonProperty("elapsed_ms")
+    private long elapsedMs;
+
+    public BulkUnzipResult() {}
+
+    public String getClientId() { return clientId; }
+    public void setClientId(String clientId) { this.clientId = clientId; }
+
+    public String getDocumentLinkId() { return documentLinkId; }
+    public void setDocumentLinkId(String documentLinkId) { this.documentLinkId = documentLinkId; }
+
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public UnzipDetail getDetail() { return detail; }
+    public void setDetail(UnzipDetail detail) { this.detail = detail; }
+
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+
+    public long getElapsedMs() { return elapsedMs; }
+    public void setElapsedMs(long elapsedMs) { this.elapsedMs = elapsedMs; }
+}
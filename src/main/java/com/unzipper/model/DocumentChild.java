@@ -0,0 +1,69 @@
+package com.unzipper.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * One extracted file of an archive, as read by the children query. Built directly from the selected
+ * columns (JPQL constructor expression), so no entity is loaded and the path CLOB is not read.
+ */
+public class DocumentChild {
+    @JsonIgnore
+    private final String kycUnzipId;
+
+    @JsonProperty("document_link_id")
+    private final String documentLinkId;
+
+    @JsonProperty("document_name")
+    private final String documentName;
+
+    @JsonProperty("document_path")
+    private String documentPath;
+
+    @JsonProperty("error")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private final String error;
+
+    @JsonProperty("lst_upd_dt")
+    private final LocalDate lstUpdDt;
+
+    @JsonProperty("lst_upd_time")
+    private final LocalTime lstUpdTime;
+
+    // Set when the path was too long for DOCUMENT_PATH and is in the CLOB column instead
+    @JsonIgnore
+    private final boolean pathInLob;
+
+    public DocumentChild(String kycUnzipId, String documentLinkId, String documentName, String documentPath,
+                         String error, LocalDate lstUpdDt, LocalTime lstUpdTime, boolean pathInLob) {
+        this.kycUnzipId = kycUnzipId;
+        this.documentLinkId = documentLinkId;
+        this.documentName = documentName;
+        this.documentPath = documentPath;
+        this.error = error;
+        this.lstUpdDt = lstUpdDt;
+        this.lstUpdTime = lstUpdTime;
+        this.pathInLob = pathInLob;
+    }
+
+    public String getKycUnzipId() { return kycUnzipId; }
+
+    public String getDocumentLinkId() { return documentLinkId; }
+
+    public String getDocumentName() { return documentName; }
+
+    public String getDocumentPath() { return documentPath; }
+    public void setDocumentPath(String documentPath) { this.documentPath = documentPath; }
+
+    public String getError() { return error; }
+
+    public LocalDate getLstUpdDt() { return lstUpdDt; }
+
+    public LocalTime getLstUpdTime() { return lstUpdTime; }
+
+    public boolean isPathInLob() { return pathInLob; }
+}
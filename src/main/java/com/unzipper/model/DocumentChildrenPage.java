@@ -0,0 +1,34 @@
+package com.unzipper.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+public class DocumentChildrenPage {
+    @JsonProperty("parent_document_link_id")
+    private String parentDocumentLinkId;
+
+    @JsonProperty("children")
+    private List<DocumentChild> children;
+
+    // Pass as 'after' to get the next page; null on the last page
+    @JsonProperty("next_cursor")
+    private String nextCursor;
+
+    public DocumentChildrenPage() {}
+
+    public DocumentChildrenPage(String parentDocumentLinkId, List<DocumentChild> children, String nextCursor) {
+        this.parentDocumentLinkId = parentDocumentLinkId;
+        this.children = children;
+        this.nextCursor = nextCursor;
+    }
+
+    public String getParentDocumentLinkId() { return parentDocumentLinkId; }
+    public void setParentDocumentLinkId(String parentDocumentLinkId) { this.parentDocumentLinkId = parentDocumentLinkId; }
+
+    public List<DocumentChild> getChildren() { return children; }
+    public void setChildren(List<DocumentChild> children) { this.children = children; }
+
+    public String getNextCursor() { return nextCursor; }
+    public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+}
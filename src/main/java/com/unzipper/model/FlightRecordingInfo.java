@@ -0,0 +1,52 @@
+package com.unzipper.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.time.Instant;
+
+public class FlightRecordingInfo {
+    @JsonProperty("id")
+    private long id;
+
+    @JsonProperty("name")
+    private String name;
+
+    // RUNNING, or STOPPED once its duration has passed
+    @JsonProperty("state")
+    private String state;
+
+    @JsonProperty("start_time")
+    private Instant startTime;
+
+    @JsonProperty("stop_time")
+    private Instant stopTime;
+
+    @JsonProperty("duration_seconds")
+    private long durationSeconds;
+
+    @JsonProperty("max_bytes")
+    private long maxBytes;
+
+    public FlightRecordingInfo() {}
+
+    public long getId() { return id; }
+    public void setId(long id) { this.id = id; }
+
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+
+    public String getState() { return state; }
+    public void setState(String state) { this.state = state; }
+
+    public Instant getStartTime() { return startTime; }
+    public void setStartTime(Instant startTime) { this.startTime = startTime; }
+
+    public Instant getStopTime() { return stopTime; }
+    public void setStopTime(Instant stopTime) { this.stopTime = stopTime; }
+
+    public long getDurationSeconds() { return durationSeconds; }
+    public void setDurationSeconds(long durationSeconds) { this.durationSeconds = durationSeconds; }
+
+    public long getMaxBytes() { return maxBytes; }
+    public void setMaxBytes(long maxBytes) { this.maxBytes = maxBytes; }
+}
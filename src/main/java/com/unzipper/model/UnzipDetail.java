@@ -1,5 +1,6 @@
 package com.unzipper.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import java.util.Map;
 
@@ -19,12 +20,30 @@ public class UnzipDetail {
     @JsonProperty("unzipped_size")
     private String unzippedSize;
 
+    // Left out when the requested view does not include them
     @JsonProperty("tree_struct")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
     private Map<String, Object> treeStruct;
 
     @JsonProperty("files_unzipped")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
     private Map<String, UnzippedFileDetail> filesUnzipped;
 
+    // Number of extracted files; only present when a view other than the full detail was requested
+    @JsonProperty("files_count")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer filesCount;
+
+    // Pass as files_after to get the next page of files_unzipped; only present when there is one
+    @JsonProperty("files_next_cursor")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String filesNextCursor;
+
+    // Path -> error for files that could not be uploaded; only present under the best-effort failure policy
+    @JsonProperty("files_failed")
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    private Map<String, String> filesFailed;
+
     public UnzipDetail() {}
 
     public String getDocumentLinkId() { return documentLinkId; }
@@ -47,4 +66,13 @@ public class UnzipDetail {
 
     public Map<String, UnzippedFileDetail> getFilesUnzipped() { return filesUnzipped; }
     public void setFilesUnzipped(Map<String, UnzippedFileDetail> filesUnzipped) { this.filesUnzipped = filesUnzipped; }
+
+    public Integer getFilesCount() { return filesCount; }
+    public void setFilesCount(Integer filesCount) { this.filesCount = filesCount; }
+
+    public String getFilesNextCursor() { return filesNextCursor; }
+    public void setFilesNextCursor(String filesNextCursor) { this.filesNextCursor = filesNextCursor; }
+
+    public Map<String, String> getFilesFailed() { return filesFailed; }
+    public void setFilesFailed(Map<String, String> filesFailed) { this.filesFailed = filesFailed; }
 }
@@ -0,0 +1,51 @@
+package com.unzipper.model;
+
+/**
+ * Which parts of an {@link UnzipDetail} a caller asked for. Parts left out are never built.
+ *
+ * FULL is the complete detail; SUMMARY only the ids, sizes and file count; FILES adds files_unzipped and
+ * TREE adds tree_struct. The tree may be cut at a depth, and files_unzipped paged in archive order.
+ */
+public final class UnzipDetailView {
+
+    public enum Fields { FULL, SUMMARY, FILES, TREE }
+
+    public static final UnzipDetailView FULL = new UnzipDetailView(Fields.FULL, -1, null, -1);
+
+    private final Fields fields;
+    private final int treeDepth;
+    private final String filesAfter;
+    private final int filesLimit;
+
+    /**
+     * @param treeDepth levels of tree_struct below the archive itself, or -1 for all
+     * @param filesAfter path of the last file of the previous page, or null for the first page
+     * @param filesLimit files per page, or -1 for all
+     */
+    public UnzipDetailView(Fields fields, int treeDepth, String filesAfter, int filesLimit) {
+        this.fields = fields;
+        this.treeDepth = treeDepth;
+        this.filesAfter = filesAfter;
+        this.filesLimit = filesLimit;
+    }
+
+    public boolean isFull() {
+        return fields == Fields.FULL && treeDepth < 0 && filesAfter == null && filesLimit < 0;
+    }
+
+    public boolean includesTree() {
+        return fields == Fields.FULL || fields == Fields.TREE;
+    }
+
+    public boolean includesFiles() {
+        return fields == Fields.FULL || fields == Fields.FILES;
+    }
+
+    public Fields getFields() { return fields; }
+
+    public int getTreeDepth() { return treeDepth; }
+
+    public String getFilesAfter() { return filesAfter; }
+
+    public int getFilesLimit() { return filesLimit; }
+}
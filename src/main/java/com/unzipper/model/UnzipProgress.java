@@ -0,0 +1,68 @@
+package com.unzipper.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class UnzipProgress {
+    @JsonProperty("document_link_id")
+    private String documentLinkId;
+
+    @JsonProperty("client_id")
+    private String clientId;
+
+    // RUNNING, COMPLETED or FAILED
+    @JsonProperty("state")
+    private String state;
+
+    @JsonProperty("archives_planned")
+    private int archivesPlanned;
+
+    @JsonProperty("files_total")
+    private int filesTotal;
+
+    @JsonProperty("files_done")
+    private int filesDone;
+
+    @JsonProperty("files_failed")
+    private int filesFailed;
+
+    @JsonProperty("bytes_total")
+    private long bytesTotal;
+
+    @JsonProperty("bytes_done")
+    private long bytesDone;
+
+    @JsonProperty("elapsed_ms")
+    private long elapsedMs;
+
+    public UnzipProgress() {}
+
+    public String getDocumentLinkId() { return documentLinkId; }
+    public void setDocumentLinkId(String documentLinkId) { this.documentLinkId = documentLinkId; }
+
+    public String getClientId() { return clientId; }
+    public void setClientId(String clientId) { this.clientId = clientId; }
+
+    public String getState() { return state; }
+    public void setState(String state) { this.state = state; }
+
+    public int getArchivesPlanned() { return archivesPlanned; }
+    public void setArchivesPlanned(int archivesPlanned) { this.archivesPlanned = archivesPlanned; }
+
+    public int getFilesTotal() { return filesTotal; }
+    public void setFilesTotal(int filesTotal) { this.filesTotal = filesTotal; }
+
+    public int getFilesDone() { return filesDone; }
+    public void setFilesDone(int filesDone) { this.filesDone = filesDone; }
+
+    public int getFilesFailed() { return filesFailed; }
+    public void setFilesFailed(int filesFailed) { this.filesFailed = filesFailed; }
+
+    public long getBytesTotal() { return bytesTotal; }
+    public void setBytesTotal(long bytesTotal) { this.bytesTotal = bytesTotal; }
+
+    public long getBytesDone() { return bytesDone; }
+    public void setBytesDone(long bytesDone) { this.bytesDone = bytesDone; }
+
+    public long getElapsedMs() { return elapsedMs; }
+    public void setElapsedMs(long elapsedMs) { this.elapsedMs = elapsedMs; }
+}
@@ -12,6 +12,7 @@ public class ZipNode {
     private boolean isDirectory;
     private boolean isArchive; // If it was a nested zip that we extracted
     private String documentLinkId; // New field for Documentum ID
+    private String skipped; // Why the entry filter skipped this entry; null if it was extracted
 
     public ZipNode() {}
 
@@ -27,6 +28,9 @@ public class ZipNode {
     public String getDocumentLinkId() { return documentLinkId; }
     public void setDocumentLinkId(String documentLinkId) { this.documentLinkId = documentLinkId; }
 
+    public String getSkipped() { return skipped; }
+    public void setSkipped(String skipped) { this.skipped = skipped; }
+
     public String getName() { return name; }
     public void setName(String name) { this.name = name; }
 
@@ -1,12 +1,38 @@
 package com.unzipper.repository;
 
 import com.unzipper.entity.KycDocumentUnzip;
+import com.unzipper.model.DocumentChild;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface KycDocumentUnzipRepository extends JpaRepository<KycDocumentUnzip, Integer> {
+public interface KycDocumentUnzipRepository extends JpaRepository<KycDocumentUnzip, String> {
     Optional<KycDocumentUnzip> findByClientIdAndDocumentLinkId(String clientId, String documentLinkId);
+
+    // Repeated requests create one record each, so the plain lookup above is not unique; take the latest
+    Optional<KycDocumentUnzip> findFirstByClientIdAndDocumentLinkIdOrderByLstUpdDtDescLstUpdTimeDesc(String clientId, String documentLinkId);
+
+    // Children pages are keyset-paginated on the time-ordered key, a range scan of IX_KYC_UNZIP_PARENT
+    // whatever the page; the Pageable only carries the row limit, so no count query is run
+    String CHILD_PROJECTION = "select new com.unzipper.model.DocumentChild(k.kycUnzipId, k.documentLinkId, k.documentName,"
+            + " k.documentPath, k.error, k.lstUpdDt, k.lstUpdTime,"
+            + " case when k.documentPathLob is null then false else true end)"
+            + " from KycDocumentUnzip k where k.parentDocumentLinkId = :parent";
+
+    @Query(CHILD_PROJECTION + " order by k.kycUnzipId")
+    List<DocumentChild> findChildren(@Param("parent") String parentDocumentLinkId, Pageable limit);
+
+    @Query(CHILD_PROJECTION + " and k.kycUnzipId > :after order by k.kycUnzipId")
+    List<DocumentChild> findChildrenAfter(@Param("parent") String parentDocumentLinkId, @Param("after") String after,
+                                          Pageable limit);
+
+    @Query("select k.kycUnzipId, k.documentPathLob from KycDocumentUnzip k where k.kycUnzipId in :ids")
+    List<Object[]> findLobPaths(@Param("ids") Collection<String> kycUnzipIds);
 }
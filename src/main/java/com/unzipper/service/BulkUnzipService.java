@@ -0,0 +1,217 @@
+package com.unzipper.service;
+
+import com.unzipper.admission.AdmissionRejectedException;
+import com.unzipper.model.BulkUnzipItem;
+import com.unzipper.model.BulkUnzipResult;
+import com.unzipper.model.UnzipDetail;
+import com.unzipper.model.UnzipDetailView;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Many documents per request, for backfills. Each document goes through the same path as
+ * /unzip_upload_save_doc (admission, duplicate coalescing, the shared upload batcher and record batcher),
+ * run by a fixed pool of unzip.bulk.max-concurrent-documents workers shared by all bulk requests, so
+ * fetches overlap without a bulk request taking every admission slot. Workers take documents from the
+ * running requests in turn, so a large backfill does not hold up the requests that arrive after it.
+ * A document turned away by admission control goes back to its request's queue after its Retry-After,
+ * up to unzip.bulk.admission-retries times, without holding a worker while it waits.
+ */
+@Service
+public class BulkUnzipService implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkUnzipService.class);
+
+    private final UnzipSaveDocService unzipSaveDocService;
+    private final ExecutorService documentExecutor;
+    private final ScheduledExecutorService retryTimer;
+    private final int maxDocuments;
+    private final int admissionRetries;
+
+    // Requests with documents waiting for a worker, served round-robin. Guarded by 'this'
+    private final Deque<BulkRun> waiting = new ArrayDeque<>();
+
+    public BulkUnzipService(UnzipSaveDocService unzipSaveDocService,
+                            @Value("${unzip.bulk.max-concurrent-documents}") int maxConcurrentDocuments,
+                            @Value("${unzip.bulk.max-documents}") int maxDocuments,
+                            @Value("${unzip.bulk.admission-retries}") int admissionRetries) {
+        this.unzipSaveDocService = unzipSaveDocService;
+        this.documentExecutor = Executors.newFixedThreadPool(Math.max(1, maxConcurrentDocuments));
+        this.retryTimer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "bulk-admission-retry");
+            t.setDaemon(true);
+            return t;
+        });
+        this.maxDocuments = maxDocuments;
+        this.admissionRetries = admissionRetries;
+    }
+
+    @Override
+    public void destroy() {
+        retryTimer.shutdownNow();
+        documentExecutor.shutdownNow();
+    }
+
+    /**
+     * Queue the documents and return at once. Each result is handed to the consumer as soon as its document
+     * finishes, from the worker that ran it, with its detail in the given view; done runs once after the
+     * last one. Throws IllegalArgumentException for an empty or oversized list or an item without ids.
+     */
+    public BulkRun start(List<BulkUnzipItem> items, UnzipDetailView view, Consumer<BulkUnzipResult> results, Runnable done) {
+        if (items == null || items.isEmpty()) {
+            throw new IllegalArgumentException("At least one document is required");
+        }
+        if (items.size() > maxDocuments) {
+            throw new IllegalArgumentException("At most " + maxDocuments + " documents per request, got " + items.size());
+        }
+        for (BulkUnzipItem item : items) {
+            if (item == null || isBlank(item.getClientId()) || isBlank(item.getDocumentLinkId())) {
+                throw new IllegalArgumentException("Every document needs a client_id and a document_link_id");
+            }
+        }
+        logger.info("Starting bulk unzip of {} documents", items.size());
+        BulkRun run = new BulkRun(items.size(), view, results, done);
+        for (BulkUnzipItem item : items) {
+            enqueue(run, new PendingDocument(item));
+        }
+        return run;
+    }
+
+    private void enqueue(BulkRun run, PendingDocument document) {
+        synchronized (this) {
+            if (run.queue.isEmpty()) {
+                waiting.addLast(run);
+            }
+            run.queue.addLast(document);
+        }
+        // One task per queued document; which document it runs is decided once a worker is free
+        documentExecutor.execute(this::runNext);
+    }
+
+    private void runNext() {
+        BulkRun run;
+        PendingDocument document;
+        synchronized (this) {
+            run = waiting.pollFirst();
+            if (run == null) {
+                return;
+            }
+            document = run.queue.pollFirst();
+            if (!run.queue.isEmpty()) {
+                // Back of the line, so every running request gets the next worker in turn
+                waiting.addLast(run);
+            }
+        }
+        boolean finished = true;
+        try {
+            if (!run.cancelled) {
+                BulkUnzipResult result = process(run, document);
+                if (result == null) {
+                    finished = false;
+                    return;
+                }
+                run.results.accept(result);
+            }
+        } catch (Exception e) {
+            // The consumer failed, e.g. the client went away: nothing left to report to
+            logger.warn("Cancelling bulk unzip: {}", e.getMessage());
+            run.cancel();
+        } finally {
+            if (finished) {
+                run.documentFinished();
+            }
+        }
+    }
+
+    /**
+     * Unzip one document, or return null if admission control turned it away and it is queued again.
+     */
+    private BulkUnzipResult process(BulkRun run, PendingDocument document) {
+        BulkUnzipItem item = document.item;
+        BulkUnzipResult result = new BulkUnzipResult();
+        result.setClientId(item.getClientId());
+        result.setDocumentLinkId(item.getDocumentLinkId());
+        if (document.attempts == 0) {
+            document.started = System.nanoTime();
+        }
+        try {
+            Map<String, UnzipDetail> response = unzipSaveDocService.processDocumentUnzip(item.getDocumentLinkId(), item.getClientId(), run.view);
+            result.setStatus("OK");
+            result.setDetail(response.get(item.getDocumentLinkId()));
+        } catch (AdmissionRejectedException e) {
+            if (document.attempts++ < admissionRetries) {
+                retryTimer.schedule(() -> enqueue(run, document), e.getRetryAfterSeconds(), TimeUnit.SECONDS);
+                return null;
+            }
+            result.setStatus("REJECTED");
+            result.setError(e.getMessage());
+        } catch (Exception e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            result.setStatus("FAILED");
+            result.setError(cause.getMessage() != null ? cause.getMessage() : cause.getClass().getName());
+        }
+        // From the first attempt, including any wait to be retried
+        result.setElapsedMs((System.nanoTime() - document.started) / 1_000_000);
+        return result;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+
+    /**
+     * A running bulk request. Cancelling drops the documents not started yet; the ones running finish.
+     */
+    public static final class BulkRun {
+        private final AtomicInteger remaining;
+        private final UnzipDetailView view;
+        private final Consumer<BulkUnzipResult> results;
+        private final Runnable done;
+        // Documents waiting for a worker. Guarded by the service
+        private final Deque<PendingDocument> queue = new ArrayDeque<>();
+        private volatile boolean cancelled;
+
+        private BulkRun(int documents, UnzipDetailView view, Consumer<BulkUnzipResult> results, Runnable done) {
+            this.remaining = new AtomicInteger(documents);
+            this.view = view;
+            this.results = results;
+            this.done = done;
+        }
+
+        public void cancel() {
+            // Queued and retrying documents are skipped when their turn comes, so done still runs once the running ones finish
+            cancelled = true;
+        }
+
+        private void documentFinished() {
+            if (remaining.decrementAndGet() == 0) {
+                done.run();
+            }
+        }
+    }
+
+    private static final class PendingDocument {
+        final BulkUnzipItem item;
+        // Only touched by the worker running the document
+        int attempts;
+        long started;
+
+        PendingDocument(BulkUnzipItem item) {
+            this.item = item;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.unzipper.service;
+
+import com.unzipper.model.DocumentChild;
+import com.unzipper.model.DocumentChildrenPage;
+import com.unzipper.repository.KycDocumentUnzipRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Read side of kyc_document_unzip: the files extracted from an archive, a page at a time.
+ *
+ * Pages are keyset-paginated: the cursor is the last key returned and the next page starts after it, so
+ * every page is an index range scan of the same cost, where OFFSET would re-read all earlier rows.
+ */
+@Service
+public class DocumentQueryService {
+
+    private final KycDocumentUnzipRepository repository;
+    private final int defaultLimit;
+    private final int maxLimit;
+
+    public DocumentQueryService(KycDocumentUnzipRepository repository,
+                                @Value("${unzip.query.children.default-limit}") int defaultLimit,
+                                @Value("${unzip.query.children.max-limit}") int maxLimit) {
+        this.repository = repository;
+        this.defaultLimit = defaultLimit;
+        this.maxLimit = maxLimit;
+    }
+
+    /**
+     * @param after cursor from the previous page, or null for the first page
+     * @param limit page size, or null for the default
+     * @throws IllegalArgumentException if the limit is outside 1..max-limit
+     */
+    @Transactional(readOnly = true)
+    public DocumentChildrenPage children(String parentDocumentLinkId, String after, Integer limit) {
+        int pageSize = limit != null ? limit : defaultLimit;
+        if (pageSize < 1 || pageSize > maxLimit) {
+            throw new IllegalArgumentException("limit must be between 1 and " + maxLimit);
+        }
+        // One row more than the page tells whether there is a next page without a count query
+        PageRequest rows = PageRequest.of(0, pageSize + 1);
+        List<DocumentChild> children = after == null || after.isEmpty()
+                ? repository.findChildren(parentDocumentLinkId, rows)
+                : repository.findChildrenAfter(parentDocumentLinkId, after, rows);
+
+        String nextCursor = null;
+        if (children.size() > pageSize) {
+            children = children.subList(0, pageSize);
+            nextCursor = children.get(pageSize - 1).getKycUnzipId();
+        }
+        fillLobPaths(children);
+        return new DocumentChildrenPage(parentDocumentLinkId, children, nextCursor);
+    }
+
+    /**
+     * Paths too long for DOCUMENT_PATH are read from the CLOB column, only for the rows that have one.
+     */
+    private void fillLobPaths(List<DocumentChild> children) {
+        List<String> ids = children.stream()
+                .filter(DocumentChild::isPathInLob)
+                .map(DocumentChild::getKycUnzipId)
+                .collect(Collectors.toList());
+        if (ids.isEmpty()) {
+            return;
+        }
+        Map<String, String> paths = new HashMap<>();
+        for (Object[] row : repository.findLobPaths(ids)) {
+            paths.put((String) row[0], (String) row[1]);
+        }
+        children.stream()
+                .filter(DocumentChild::isPathInLob)
+                .forEach(child -> child.setDocumentPath(paths.get(child.getKycUnzipId())));
+    }
+}
@@ -0,0 +1,86 @@
+package com.unzipper.service;
+
+import com.unzipper.client.DocumentumClient;
+import com.unzipper.entity.KycDocumentUnzip;
+import com.unzipper.extract.EntrySink;
+import com.unzipper.extract.ExtractedEntry;
+import com.unzipper.extract.TaskGraph;
+import com.unzipper.repository.KycDocumentUnzipRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Uploads each extracted file to Documentum under the request's parent document and logs it to
+ * kyc_document_unzip. Small files go out in shared batches, the rest singly on the upload pool;
+ * records are written in batches once the upload has returned the document_link_id.
+ */
+class DocumentumSink implements EntrySink {
+
+    private static final Logger logger = LoggerFactory.getLogger(DocumentumSink.class);
+
+    private final DocumentumClient documentumClient;
+    private final UploadBatcher uploadBatcher;
+    private final Executor uploadExecutor;
+    private final RecordBatcher recordBatcher;
+    private final KycDocumentUnzipRepository repository;
+    private final String clientId;
+    private final String parentDocumentLinkId;
+
+    DocumentumSink(DocumentumClient documentumClient, UploadBatcher uploadBatcher, Executor uploadExecutor,
+                   RecordBatcher recordBatcher, KycDocumentUnzipRepository repository,
+                   String clientId, String parentDocumentLinkId) {
+        this.documentumClient = documentumClient;
+        this.uploadBatcher = uploadBatcher;
+        this.uploadExecutor = uploadExecutor;
+        this.recordBatcher = recordBatcher;
+        this.repository = repository;
+        this.clientId = clientId;
+        this.parentDocumentLinkId = parentDocumentLinkId;
+    }
+
+    @Override
+    public CompletableFuture<String> store(ExtractedEntry entry, TaskGraph graph) {
+        CompletableFuture<String> upload = uploadBatcher.accepts(entry.getSize())
+                ? graph.cancelOnFailure(uploadBatcher.submit(entry.getFile(), entry.getEntryName(), parentDocumentLinkId, entry.getSize()))
+                : CompletableFuture.supplyAsync(graph.guard(() -> documentumClient.uploadDocument(entry.getFile(), entry.getEntryName(), parentDocumentLinkId)), uploadExecutor);
+        // Log the unzipped file to database, batched with the records of other uploads
+        return upload.thenCompose(docId -> {
+            KycDocumentUnzip childRecord = childRecord(entry);
+            childRecord.setDocumentLinkId(docId);
+            return recordBatcher.submit(childRecord).thenApply(v -> docId);
+        });
+    }
+
+    @Override
+    public void failed(ExtractedEntry entry, Exception error) {
+        // Use placeholder ID if upload failed to satisfy NOT NULL constraint
+        KycDocumentUnzip errorRecord = childRecord(entry);
+        errorRecord.setDocumentLinkId("ERROR_UPLOAD_FAILED");
+        String errorMsg = error.getMessage();
+        if (errorMsg != null && errorMsg.length() > 3000) {
+            errorMsg = errorMsg.substring(0, 3000);
+        }
+        errorRecord.setError(errorMsg);
+        try {
+            repository.save(errorRecord);
+        } catch (Exception dbEx) {
+            logger.error("Failed to save error record for file: " + entry.getEntryName(), dbEx);
+        }
+    }
+
+    private KycDocumentUnzip childRecord(ExtractedEntry entry) {
+        KycDocumentUnzip record = new KycDocumentUnzip();
+        record.setClientId(clientId);
+        record.setParentDocumentLinkId(parentDocumentLinkId);
+        record.setDocumentName(entry.getFileName());
+        record.setDocumentPath(entry.getPath());
+        record.setLstUpdDt(LocalDate.now());
+        record.setLstUpdTime(LocalTime.now());
+        return record;
+    }
+}
@@ -0,0 +1,152 @@
+package com.unzipper.service;
+
+import com.unzipper.diagnostics.RecordFlushEvent;
+import com.unzipper.entity.KycDocumentUnzip;
+import com.unzipper.repository.KycDocumentUnzipRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Groups the per-file kyc_document_unzip inserts into multi-row transactions.
+ *
+ * Saving each record on its own costs a transaction and a commit per extracted file. Records are
+ * collected instead and written with one saveAll (one transaction, sent as JDBC batches) when the batch
+ * is full or the time window since its first record expires. Batches are shared across requests; each
+ * record gets its own future, completed once it is committed. If a batch fails, its records are saved
+ * one by one so that only the record that cannot be written fails.
+ */
+class RecordBatcher implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(RecordBatcher.class);
+
+    private final KycDocumentUnzipRepository repository;
+    private final int maxRecords;
+    private final long windowMillis;
+    // One writer: batches commit in the order they fill, and the pool is not flooded with connections
+    private final ExecutorService writer;
+    private final ScheduledExecutorService windowTimer;
+
+    // Guarded by 'this'
+    private List<Pending> current = new ArrayList<>();
+    private long generation;
+
+    RecordBatcher(KycDocumentUnzipRepository repository, int maxRecords, long windowMillis) {
+        this.repository = repository;
+        this.maxRecords = Math.max(1, maxRecords);
+        this.windowMillis = windowMillis;
+        this.writer = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "record-batch-writer");
+            t.setDaemon(true);
+            return t;
+        });
+        this.windowTimer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "record-batch-window");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    CompletableFuture<Void> submit(KycDocumentUnzip record) {
+        Pending pending = new Pending(record);
+        List<Pending> ready = null;
+        synchronized (this) {
+            if (current.isEmpty() && maxRecords > 1) {
+                long batch = generation;
+                windowTimer.schedule(() -> flushWindow(batch), windowMillis, TimeUnit.MILLISECONDS);
+            }
+            current.add(pending);
+            if (current.size() >= maxRecords) {
+                ready = take();
+            }
+        }
+        if (ready != null) {
+            write(ready);
+        }
+        return pending.future;
+    }
+
+    @Override
+    public void close() {
+        windowTimer.shutdownNow();
+        writer.shutdownNow();
+        List<Pending> remaining;
+        synchronized (this) {
+            remaining = take();
+        }
+        remaining.forEach(p -> p.future.completeExceptionally(new IllegalStateException("Record batcher closed")));
+    }
+
+    private void flushWindow(long batch) {
+        List<Pending> ready = null;
+        synchronized (this) {
+            // The batch may already have been written because it filled up
+            if (generation == batch && !current.isEmpty()) {
+                ready = take();
+            }
+        }
+        if (ready != null) {
+            write(ready);
+        }
+    }
+
+    // Guarded by 'this'
+    private List<Pending> take() {
+        List<Pending> batch = current;
+        current = new ArrayList<>();
+        generation++;
+        return batch;
+    }
+
+    private void write(List<Pending> batch) {
+        writer.execute(() -> {
+            RecordFlushEvent event = new RecordFlushEvent();
+            event.records = batch.size();
+            event.begin();
+            List<KycDocumentUnzip> records = new ArrayList<>(batch.size());
+            batch.forEach(p -> records.add(p.record));
+            try {
+                repository.saveAll(records);
+                batch.forEach(p -> p.future.complete(null));
+            } catch (Exception e) {
+                if (batch.size() > 1) {
+                    logger.warn("Saving {} records in one batch failed, retrying one by one: {}", batch.size(), e.getMessage());
+                }
+                event.savedSingly = true;
+                event.failedRecords = saveSingly(batch);
+            } finally {
+                event.commit();
+            }
+        });
+    }
+
+    private int saveSingly(List<Pending> batch) {
+        int failed = 0;
+        for (Pending p : batch) {
+            try {
+                repository.save(p.record);
+                p.future.complete(null);
+            } catch (Exception e) {
+                p.future.completeExceptionally(e);
+                failed++;
+            }
+        }
+        return failed;
+    }
+
+    private static class Pending {
+        final KycDocumentUnzip record;
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        Pending(KycDocumentUnzip record) {
+            this.record = record;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.unzipper.service;
+
+import com.unzipper.extract.ExtractionListener;
+import com.unzipper.io.ArchivePlan;
+import com.unzipper.model.UnzipProgress;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress of running (and recently finished) unzip requests, by client and document.
+ *
+ * Totals come from the archive plans: they are known for the outer archive as soon as it is planned and
+ * grow as nested archives are discovered and planned. Counters are updated lock-free by the upload threads.
+ */
+@Component
+public class UnzipProgressRegistry {
+
+    private final ConcurrentHashMap<String, Tracker> trackers = new ConcurrentHashMap<>();
+    private final long retentionMillis;
+    private final int maxTracked;
+
+    public UnzipProgressRegistry(@Value("${unzip.progress.retention-ms}") long retentionMillis,
+                                 @Value("${unzip.progress.max-tracked}") int maxTracked) {
+        this.retentionMillis = retentionMillis;
+        this.maxTracked = maxTracked;
+    }
+
+    Tracker start(String clientId, String documentLinkId) {
+        if (trackers.size() >= maxTracked) {
+            long now = System.currentTimeMillis();
+            trackers.values().removeIf(t -> t.finishedAt != 0 && t.finishedAt + retentionMillis < now);
+        }
+        Tracker tracker = new Tracker(clientId, documentLinkId);
+        // When full of running requests, progress is still tracked for the request itself, just not published
+        if (trackers.size() < maxTracked) {
+            trackers.put(clientId + "/" + documentLinkId, tracker);
+        }
+        return tracker;
+    }
+
+    public Optional<UnzipProgress> get(String clientId, String documentLinkId) {
+        String key = clientId + "/" + documentLinkId;
+        Tracker tracker = trackers.get(key);
+        if (tracker == null) {
+            return Optional.empty();
+        }
+        if (tracker.finishedAt != 0 && tracker.finishedAt + retentionMillis < System.currentTimeMillis()) {
+            trackers.remove(key, tracker);
+            return Optional.empty();
+        }
+        return Optional.of(tracker.snapshot());
+    }
+
+    static class Tracker implements ExtractionListener {
+        private final String clientId;
+        private final String documentLinkId;
+        private final long startedAt = System.currentTimeMillis();
+        private final AtomicInteger archives = new AtomicInteger();
+        private final AtomicInteger filesTotal = new AtomicInteger();
+        private final AtomicInteger filesDone = new AtomicInteger();
+        private final AtomicInteger filesFailed = new AtomicInteger();
+        private final AtomicLong bytesTotal = new AtomicLong();
+        private final AtomicLong bytesDone = new AtomicLong();
+        private volatile String state = "RUNNING";
+        private volatile long finishedAt;
+
+        Tracker(String clientId, String documentLinkId) {
+            this.clientId = clientId;
+            this.documentLinkId = documentLinkId;
+        }
+
+        @Override
+        public void planned(ArchivePlan plan) {
+            archives.incrementAndGet();
+            filesTotal.addAndGet(plan.getFileCount());
+            bytesTotal.addAndGet(plan.getFileBytes());
+        }
+
+        @Override
+        public void fileDone(long bytes) {
+            filesDone.incrementAndGet();
+            bytesDone.addAndGet(bytes);
+        }
+
+        @Override
+        public void fileFailed() {
+            filesFailed.incrementAndGet();
+        }
+
+        @Override
+        public void fileSkipped(long bytes) {
+            filesTotal.decrementAndGet();
+            bytesTotal.addAndGet(-bytes);
+        }
+
+        void finish(boolean completed) {
+            state = completed ? "COMPLETED" : "FAILED";
+            finishedAt = System.currentTimeMillis();
+        }
+
+        UnzipProgress snapshot() {
+            UnzipProgress progress = new UnzipProgress();
+            progress.setClientId(clientId);
+            progress.setDocumentLinkId(documentLinkId);
+            progress.setState(state);
+            progress.setArchivesPlanned(archives.get());
+            progress.setFilesTotal(filesTotal.get());
+            progress.setFilesDone(filesDone.get());
+            progress.setFilesFailed(filesFailed.get());
+            progress.setBytesTotal(bytesTotal.get());
+            progress.setBytesDone(bytesDone.get());
+            long end = finishedAt != 0 ? finishedAt : System.currentTimeMillis();
+            progress.setElapsedMs(end - startedAt);
+            return progress;
+        }
+    }
+}
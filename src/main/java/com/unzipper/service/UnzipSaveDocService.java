@@ -1,15 +1,29 @@
 package com.unzipper.service;
 
+import com.unzipper.admission.AdmissionController;
+import com.unzipper.admission.AdmissionRejectedException;
+import com.unzipper.admission.AdmissionTicket;
 import com.unzipper.client.DocumentumClient;
 import com.unzipper.entity.KycDocumentUnzip;
-import com.unzipper.model.DownloadedDocument;
+import com.unzipper.extract.ExtractionEngine;
+import com.unzipper.extract.ExtractionJob;
+import com.unzipper.extract.ExtractionResult;
+import com.unzipper.extract.TaskGraph;
+import com.unzipper.io.ArchivePlan;
+import com.unzipper.io.EntryExtractor;
+import com.unzipper.io.SpilledArchive;
 import com.unzipper.model.UnzipDetail;
+import com.unzipper.model.UnzipDetailView;
 import com.unzipper.model.UnzippedFileDetail;
 import com.unzipper.model.UnzipResponse;
 import com.unzipper.model.ZipNode;
 import com.unzipper.repository.KycDocumentUnzipRepository;
+import com.unzipper.storage.TempScope;
+import com.unzipper.storage.TempStorageExhaustedException;
+import com.unzipper.storage.TempStorageManager;
+import com.unzipper.util.InFlightWindow;
+import com.unzipper.util.SingleFlight;
 import org.apache.commons.io.FilenameUtils;
-import org.apache.commons.io.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -18,15 +32,12 @@ import org.springframework.stereotype.Service;
 
 import java.io.*;
 import java.nio.file.Files;
-import java.nio.file.Path;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
 
 @Service
 public class UnzipSaveDocService implements DisposableBean {
@@ -35,40 +46,186 @@ public class UnzipSaveDocService implements DisposableBean {
 
     private final DocumentumClient documentumClient;
     private final KycDocumentUnzipRepository kycDocumentUnzipRepository;
-    private final ExecutorService executor;
+    private final EntryExtractor entryExtractor;
+    private final TempStorageManager tempStorage;
+    private final AdmissionController admissionController;
+    private final UnzipProgressRegistry progressRegistry;
+    private final ExtractionEngine extractionEngine;
     private final ExecutorService uploadExecutor; // Separate executor for uploads in parallel
+    private final UploadBatcher uploadBatcher;
+    private final RecordBatcher recordBatcher;
+    private final int inFlightMaxEntries;
+    private final long inFlightMaxBytes;
+    private final boolean failFast;
+    private final int detailFilesMaxLimit;
+
+    // Duplicate requests for the same document share one run, and near-duplicates reuse its result. The
+    // outcome is shared rather than a built detail, as each request may ask for a different view of it
+    private final SingleFlight<String, UnzipOutcome> unzipFlights = new SingleFlight<>();
+    private final ConcurrentHashMap<String, RecentResult> recentResults = new ConcurrentHashMap<>();
+    private final boolean dedupEnabled;
+    private final long dedupResultTtlMillis;
+    private final int dedupMaxResults;
 
     public UnzipSaveDocService(DocumentumClient documentumClient, 
                                KycDocumentUnzipRepository kycDocumentUnzipRepository,
-                               @Value("${unzip.process.threads.multiplier}") int processThreadsMultiplier,
-                               @Value("${unzip.upload.threads}") int uploadThreads) {
+                               EntryExtractor entryExtractor,
+                               TempStorageManager tempStorage,
+                               AdmissionController admissionController,
+                               UnzipProgressRegistry progressRegistry,
+                               ExtractionEngine extractionEngine,
+                               @Value("${unzip.upload.threads}") int uploadThreads,
+                               @Value("${unzip.dedup.enabled}") boolean dedupEnabled,
+                               @Value("${unzip.dedup.result-ttl-ms}") long dedupResultTtlMillis,
+                               @Value("${unzip.dedup.max-results}") int dedupMaxResults,
+                               @Value("${unzip.upload.batch.max-entries}") int batchMaxEntries,
+                               @Value("${unzip.upload.batch.max-bytes}") long batchMaxBytes,
+                               @Value("${unzip.upload.batch.max-entry-bytes}") long batchMaxEntryBytes,
+                               @Value("${unzip.upload.batch.window-ms}") long batchWindowMillis,
+                               @Value("${unzip.inflight.max-entries}") int inFlightMaxEntries,
+                               @Value("${unzip.inflight.max-bytes}") long inFlightMaxBytes,
+                               @Value("${unzip.failure.policy}") String failurePolicy,
+                               @Value("${unzip.db.write.batch-size}") int recordBatchSize,
+                               @Value("${unzip.db.write.window-ms}") long recordWindowMillis,
+                               @Value("${unzip.detail.files.max-limit}") int detailFilesMaxLimit) {
         this.documentumClient = documentumClient;
         this.kycDocumentUnzipRepository = kycDocumentUnzipRepository;
-        int availableProcessors = Runtime.getRuntime().availableProcessors();
-        // Processing Executor: for unzip logic and file IO
-        this.executor = Executors.newFixedThreadPool(availableProcessors * processThreadsMultiplier); 
+        this.entryExtractor = entryExtractor;
+        this.tempStorage = tempStorage;
+        this.admissionController = admissionController;
+        this.progressRegistry = progressRegistry;
+        this.extractionEngine = extractionEngine;
+        this.dedupEnabled = dedupEnabled;
+        this.dedupResultTtlMillis = dedupResultTtlMillis;
+        this.dedupMaxResults = dedupMaxResults;
+        this.inFlightMaxEntries = inFlightMaxEntries;
+        this.inFlightMaxBytes = inFlightMaxBytes;
+        if (!"fail-fast".equals(failurePolicy) && !"best-effort".equals(failurePolicy)) {
+            throw new IllegalArgumentException("unzip.failure.policy must be fail-fast or best-effort, was: " + failurePolicy);
+        }
+        this.failFast = "fail-fast".equals(failurePolicy);
+        this.detailFilesMaxLimit = detailFilesMaxLimit;
         // Upload Executor: Enforce specified parallelism (at least 10)
         this.uploadExecutor = Executors.newFixedThreadPool(uploadThreads);
+        this.uploadBatcher = new UploadBatcher(documentumClient, uploadExecutor,
+                batchMaxEntries, batchMaxBytes, batchMaxEntryBytes, batchWindowMillis);
+        this.recordBatcher = new RecordBatcher(kycDocumentUnzipRepository, recordBatchSize, recordWindowMillis);
     }
 
     @Override
     public void destroy() {
-        if (executor != null) {
-            executor.shutdownNow();
-        }
+        uploadBatcher.close();
+        recordBatcher.close();
         if (uploadExecutor != null) {
             uploadExecutor.shutdownNow();
         }
     }
 
     /**
-     * Main process method: fetch from Documentum, unzip, and save metadata to database
+     * Validate the view query parameters of an unzip request.
+     *
+     * @param view full (default), summary, files or tree
+     * @param treeDepth levels of tree_struct below the archive, or null for all
+     * @param filesAfter files_next_cursor of the previous page of files_unzipped, or null
+     * @param filesLimit files_unzipped page size, or null for all files
+     * @throws IllegalArgumentException for an unknown view or a depth or limit out of range
      */
+    public UnzipDetailView detailView(String view, Integer treeDepth, String filesAfter, Integer filesLimit) {
+        UnzipDetailView.Fields fields;
+        try {
+            fields = view == null || view.isEmpty() ? UnzipDetailView.Fields.FULL
+                    : UnzipDetailView.Fields.valueOf(view.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("view must be full, summary, files or tree, was: " + view);
+        }
+        if (treeDepth != null && treeDepth < 0) {
+            throw new IllegalArgumentException("tree_depth must not be negative");
+        }
+        if (filesLimit != null && (filesLimit < 1 || filesLimit > detailFilesMaxLimit)) {
+            throw new IllegalArgumentException("files_limit must be between 1 and " + detailFilesMaxLimit);
+        }
+        return new UnzipDetailView(fields, treeDepth != null ? treeDepth : -1,
+                filesAfter == null || filesAfter.isEmpty() ? null : filesAfter, filesLimit != null ? filesLimit : -1);
+    }
+
     public Map<String, UnzipDetail> processDocumentUnzip(String documentLinkId, String clientId) {
+        return processDocumentUnzip(documentLinkId, clientId, UnzipDetailView.FULL);
+    }
+
+    /**
+     * Main process method: fetch from Documentum, unzip, and save metadata to database.
+     * Concurrent calls for the same client/document attach to the run already in flight, and calls
+     * arriving shortly after a successful run are answered from its result.
+     */
+    public Map<String, UnzipDetail> processDocumentUnzip(String documentLinkId, String clientId, UnzipDetailView view) {
+        UnzipOutcome outcome;
+        if (!dedupEnabled) {
+            outcome = runDocumentUnzip(documentLinkId, clientId);
+        } else {
+            String key = clientId + "/" + documentLinkId;
+            UnzipOutcome recent = recentResult(key, clientId, documentLinkId);
+            if (recent != null) {
+                outcome = recent;
+            } else {
+                if (unzipFlights.isInFlight(key)) {
+                    logger.info("Joining in-flight unzip for clientId: {}, documentLinkId: {}", clientId, documentLinkId);
+                }
+                outcome = unzipFlights.execute(key, () -> {
+                    // The previous leader may have finished between our check and registering
+                    UnzipOutcome justFinished = recentResult(key, clientId, documentLinkId);
+                    return justFinished != null ? justFinished : runDocumentUnzip(documentLinkId, clientId);
+                });
+            }
+        }
+        return Collections.singletonMap(documentLinkId, buildDetail(outcome, view));
+    }
+
+    private UnzipOutcome recentResult(String key, String clientId, String documentLinkId) {
+        RecentResult recent = recentResults.get(key);
+        if (recent == null) {
+            return null;
+        }
+        if (recent.expiresAt < System.currentTimeMillis()) {
+            recentResults.remove(key, recent);
+            return null;
+        }
+        // Only trust the cached result while it still describes the latest stored run for this document
+        Optional<KycDocumentUnzip> latest = kycDocumentUnzipRepository
+                .findFirstByClientIdAndDocumentLinkIdOrderByLstUpdDtDescLstUpdTimeDesc(clientId, documentLinkId);
+        if (latest.isEmpty() || !latest.get().getKycUnzipId().equals(recent.kycUnzipId) || latest.get().getError() != null) {
+            recentResults.remove(key, recent);
+            return null;
+        }
+        logger.info("Answering duplicate unzip request from recent result for clientId: {}, documentLinkId: {}", clientId, documentLinkId);
+        return recent.outcome;
+    }
+
+    private void rememberResult(String clientId, String documentLinkId, String kycUnzipId, UnzipOutcome outcome) {
+        if (!dedupEnabled || dedupResultTtlMillis <= 0) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (recentResults.size() >= dedupMaxResults) {
+            recentResults.values().removeIf(r -> r.expiresAt < now);
+            if (recentResults.size() >= dedupMaxResults) {
+                return;
+            }
+        }
+        recentResults.put(clientId + "/" + documentLinkId, new RecentResult(kycUnzipId, outcome, now + dedupResultTtlMillis));
+    }
+
+    private UnzipOutcome runDocumentUnzip(String documentLinkId, String clientId) {
         logger.info("Processing document unzip for clientId: {}, documentLinkId: {}", clientId, documentLinkId);
 
         KycDocumentUnzip kycRecord = null;
+        TempScope scope = null;
+        AdmissionTicket ticket = null;
+        UnzipProgressRegistry.Tracker progress = null;
         try {
+            // Wait for a processing slot, or be turned away, before doing any work
+            ticket = admissionController.admit();
+            progress = progressRegistry.start(clientId, documentLinkId);
+
             // Log the request to database
             kycRecord = new KycDocumentUnzip(clientId, documentLinkId);
             kycRecord.setLstUpdTime(LocalTime.now());
@@ -76,73 +233,44 @@ public class UnzipSaveDocService implements DisposableBean {
             kycDocumentUnzipRepository.save(kycRecord);
             logger.info("Logged request to database with KYC_UNZIP_ID: {}", kycRecord.getKycUnzipId());
 
-            // Fetch document from Documentum
-            DownloadedDocument downloadedDoc = documentumClient.fetchDocument(documentLinkId);
-            InputStream documentStream = downloadedDoc.getContentStream();
-            
-            // Create temporary directory for processing
-            Path tempDir = Files.createTempDirectory("unzipper_service_");
-            String safeFilename = FilenameUtils.getName(downloadedDoc.getFilename()); 
+            // Temp files for this request; everything in the scope is deleted when it closes
+            scope = tempStorage.openScope("unzip");
+            File tempZipFile = scope.newNamedFile("source.zip", -1).toFile();
+
+            // Fetch document from Documentum, decoding straight into the temporary file
+            String downloadedFilename = documentumClient.fetchDocumentToFile(documentLinkId, tempZipFile.toPath());
+            scope.settle(tempZipFile.toPath());
+            String safeFilename = FilenameUtils.getName(downloadedFilename);
             if (safeFilename == null || safeFilename.isEmpty()) {
                  safeFilename = documentLinkId + ".zip";
             }
-            File tempZipFile = tempDir.resolve(safeFilename).toFile();
-
-            // Save the stream to a temporary file
-            try (FileOutputStream fos = new FileOutputStream(tempZipFile)) {
-                IOUtils.copy(documentStream, fos);
-            }
 
             logger.info("Downloaded document to temp file, size: {} bytes", tempZipFile.length());
             long zippedSizeBytes = tempZipFile.length();
+            ticket.reserve(zippedSizeBytes, inflatedSize(tempZipFile));
 
             // Process the zip file
-            ProcessingResult result = processZipFile(tempZipFile, safeFilename, "", zippedSizeBytes, documentLinkId, clientId).get();
+            ExtractionResult result = extract(scope, progress, tempZipFile, safeFilename, documentLinkId, clientId);
 
             // Update database record with processing results
-            kycRecord.setDocumentName(result.node.getName());
-            kycRecord.setDocumentPath(result.node.getPath());
+            kycRecord.setDocumentName(result.getNode().getName());
+            kycRecord.setDocumentPath(result.getNode().getPath());
             kycRecord.setLstUpdTime(LocalTime.now());
             kycRecord.setLstUpdDt(LocalDate.now());
             kycDocumentUnzipRepository.save(kycRecord);
 
-            logger.info("Successfully processed {} files for documentLinkId: {}", result.docIds.size(), documentLinkId);
-
-            // Cleanup
-            try {
-                // IMPORTANT: Recursive delete
-                Files.walk(tempDir)
-                    .sorted(Comparator.reverseOrder())
-                    .map(Path::toFile)
-                    .forEach(File::delete);
-                logger.debug("Cleaned up temporary directory: {}", tempDir);
-            } catch (Exception ignored) {
-                logger.warn("Error cleaning up temporary files at {}", tempDir, ignored);
-            }
+            logger.info("Successfully processed {} files for documentLinkId: {}", result.getDocIds().size(), documentLinkId);
 
-            // Construct new response format
-            UnzipDetail detail = new UnzipDetail();
-            detail.setDocumentLinkId(documentLinkId);
-            detail.setClientId(clientId);
-            detail.setFileName(result.node.getName());
-            // Size in KB (approx)
-            detail.setZippedSize(String.valueOf(zippedSizeBytes / 1024)); 
-            
-            Map<String, Object> treeStruct = new HashMap<>();
-            treeStruct.put(result.node.getName(), buildChildrenMap(result.node));
-            detail.setTreeStruct(treeStruct);
-
-            Map<String, UnzippedFileDetail> filesUnzipped = new HashMap<>();
-            AtomicLong totalUnzippedBytes = new AtomicLong(0);
-            populateFilesUnzipped(result.node, filesUnzipped, totalUnzippedBytes);
-            detail.setFilesUnzipped(filesUnzipped);
-            
-            detail.setUnzippedSize(String.valueOf(totalUnzippedBytes.get() / 1024));
-
-            return Collections.singletonMap(documentLinkId, detail);
+            UnzipOutcome outcome = new UnzipOutcome(documentLinkId, clientId, zippedSizeBytes, result);
+            rememberResult(clientId, documentLinkId, kycRecord.getKycUnzipId(), outcome);
+            progress.finish(true);
+            return outcome;
 
         } catch (Exception e) {
             logger.error("Error processing document unzip: {}", e.getMessage(), e);
+            if (progress != null) {
+                progress.finish(false);
+            }
             if (kycRecord != null) {
                 try {
                     String errorMsg = e.getMessage();
@@ -157,38 +285,53 @@ public class UnzipSaveDocService implements DisposableBean {
                     logger.error("Failed to update error status in database", dbEx);
                 }
             }
+            if (e instanceof AdmissionRejectedException || e instanceof TempStorageExhaustedException) {
+                throw (RuntimeException) e;
+            }
             throw new RuntimeException("Failed to process document unzip", e);
+        } finally {
+            if (scope != null) {
+                scope.close();
+            }
+            if (ticket != null) {
+                ticket.close();
+            }
         }
     }
 
     /**
      * Upload zip file directly, store in Documentum, then unzip and process.
      */
-    public Map<String, UnzipDetail> processDirectUpload(org.springframework.web.multipart.MultipartFile file, String clientId) {
+    public Map<String, UnzipDetail> processDirectUpload(org.springframework.web.multipart.MultipartFile file, String clientId,
+                                                        UnzipDetailView view) {
         logger.info("Processing direct upload unzip for clientId: {}, filename: {}", clientId, file.getOriginalFilename());
 
         KycDocumentUnzip kycRecord = null;
         File tempZipFile = null;
-        Path tempDir = null;
+        TempScope scope = null;
+        AdmissionTicket ticket = null;
+        UnzipProgressRegistry.Tracker progress = null;
 
         try {
-            // 1. Create temp directory and save uploaded file
-            tempDir = Files.createTempDirectory("unzipper_upload_");
+            // 0. Wait for a processing slot, or be turned away, before doing any work
+            ticket = admissionController.admit();
+
+            // 1. Open a temp scope and save uploaded file
+            scope = tempStorage.openScope("upload");
             String safeFilename = FilenameUtils.getName(file.getOriginalFilename());
             if (safeFilename == null || safeFilename.isEmpty()) {
                 safeFilename = "upload.zip";
             }
-            tempZipFile = tempDir.resolve(safeFilename).toFile();
+            tempZipFile = scope.newNamedFile(safeFilename, file.getSize()).toFile();
             file.transferTo(tempZipFile);
             logger.info("Saved uploaded file to temp: {}, size: {} bytes", tempZipFile.getAbsolutePath(), tempZipFile.length());
+            ticket.reserve(tempZipFile.length(), inflatedSize(tempZipFile));
 
             // 2. Upload the PARENT zip to Documentum immediately to get a documentLinkId
-            // Using a simple read of the temp file. For very large files, this might need streaming, 
-            // but DocumentumClient.uploadDocument currently takes byte[]. 
-            // Assuming max file size fits in memory as per existing logic.
-            byte[] fileContent = Files.readAllBytes(tempZipFile.toPath());
-            String documentLinkId = documentumClient.uploadDocument(fileContent, safeFilename, null);
+            // The request body is encoded from the temp file as it is sent, never held in memory
+            String documentLinkId = documentumClient.uploadDocument(tempZipFile.toPath(), safeFilename, null);
             logger.info("Uploaded parent zip to Documentum, received documentLinkId: {}", documentLinkId);
+            progress = progressRegistry.start(clientId, documentLinkId);
 
             // 3. Log the request to database using the new ID
             kycRecord = new KycDocumentUnzip(clientId, documentLinkId);
@@ -200,59 +343,26 @@ public class UnzipSaveDocService implements DisposableBean {
 
             // 4. Process the zip file (Reuse existing logic)
             long zippedSizeBytes = tempZipFile.length();
-            ProcessingResult result = processZipFile(tempZipFile, safeFilename, "", zippedSizeBytes, documentLinkId, clientId).get();
+            ExtractionResult result = extract(scope, progress, tempZipFile, safeFilename, documentLinkId, clientId);
 
             // 5. Update database record with processing results
-            kycRecord.setDocumentName(result.node.getName());
-            kycRecord.setDocumentPath(result.node.getPath());
+            kycRecord.setDocumentName(result.getNode().getName());
+            kycRecord.setDocumentPath(result.getNode().getPath());
             kycRecord.setLstUpdTime(LocalTime.now());
             kycRecord.setLstUpdDt(LocalDate.now());
             kycDocumentUnzipRepository.save(kycRecord);
 
-            logger.info("Successfully processed {} files for documentLinkId: {}", result.docIds.size(), documentLinkId);
-
-            // 6. Cleanup
-            try {
-                Files.walk(tempDir)
-                    .sorted(Comparator.reverseOrder())
-                    .map(Path::toFile)
-                    .forEach(File::delete);
-                logger.debug("Cleaned up temporary directory: {}", tempDir);
-            } catch (Exception ignored) {
-                logger.warn("Error cleaning up temporary files at {}", tempDir, ignored);
-            }
-
-            // 7. Construct response (Same format)
-            UnzipDetail detail = new UnzipDetail();
-            detail.setDocumentLinkId(documentLinkId);
-            detail.setClientId(clientId);
-            detail.setFileName(result.node.getName());
-            detail.setZippedSize(String.valueOf(zippedSizeBytes / 1024)); 
-            
-            Map<String, Object> treeStruct = new HashMap<>();
-            treeStruct.put(result.node.getName(), buildChildrenMap(result.node));
-            detail.setTreeStruct(treeStruct);
-
-            Map<String, UnzippedFileDetail> filesUnzipped = new HashMap<>();
-            AtomicLong totalUnzippedBytes = new AtomicLong(0);
-            populateFilesUnzipped(result.node, filesUnzipped, totalUnzippedBytes);
-            detail.setFilesUnzipped(filesUnzipped);
-            
-            detail.setUnzippedSize(String.valueOf(totalUnzippedBytes.get() / 1024));
+            logger.info("Successfully processed {} files for documentLinkId: {}", result.getDocIds().size(), documentLinkId);
 
+            // 6. Construct response (Same format)
+            UnzipDetail detail = buildDetail(new UnzipOutcome(documentLinkId, clientId, zippedSizeBytes, result), view);
+            progress.finish(true);
             return Collections.singletonMap(documentLinkId, detail);
 
         } catch (Exception e) {
             logger.error("Error processing direct upload unzip: {}", e.getMessage(), e);
-            
-            // Clean up temp dir if it exists
-            if (tempDir != null) {
-                try {
-                    Files.walk(tempDir)
-                        .sorted(Comparator.reverseOrder())
-                        .map(Path::toFile)
-                        .forEach(File::delete);
-                } catch (Exception ignored) {}
+            if (progress != null) {
+                progress.finish(false);
             }
 
             if (kycRecord != null) {
@@ -268,7 +378,7 @@ public class UnzipSaveDocService implements DisposableBean {
                 } catch (Exception dbEx) {
                     logger.error("Failed to update error status in database", dbEx);
                 }
-            } else if (clientId != null) {
+            } else if (clientId != null && !(e instanceof AdmissionRejectedException)) {
                  // Try to log minimal error record if we failed before getting a doc ID
                  // But we need a DOC_ID for NOT NULL constraint.
                  try {
@@ -284,201 +394,166 @@ public class UnzipSaveDocService implements DisposableBean {
                  }
             }
 
+            if (e instanceof AdmissionRejectedException || e instanceof TempStorageExhaustedException) {
+                throw (RuntimeException) e;
+            }
             throw new RuntimeException("Failed to process document unzip", e);
+        } finally {
+            if (scope != null) {
+                scope.close();
+            }
+            if (ticket != null) {
+                ticket.close();
+            }
         }
     }
 
-    private CompletableFuture<ProcessingResult> processZipFile(File file, String zipName, String relativePath, long compressedSize, 
-                                                                String parentDocumentLinkId, String clientId) {
-        return CompletableFuture.supplyAsync(() -> {
-            logger.debug("Processing zip file: {}", zipName);
-            try (FileInputStream fis = new FileInputStream(file);
-                 ZipInputStream zis = new ZipInputStream(new BufferedInputStream(fis))) {
-
-                return processStream(zis, relativePath, zipName, compressedSize, file.length(), 
-                        parentDocumentLinkId, clientId);
-            } catch (Exception e) {
-                throw new RuntimeException(e);
-            }
-        }, executor);
+    /**
+     * Extract the archive into Documentum under its parent document, logging every file to the database.
+     */
+    private ExtractionResult extract(TempScope scope, UnzipProgressRegistry.Tracker progress, File zipFile, String zipName,
+                                     String documentLinkId, String clientId) throws ExecutionException, InterruptedException {
+        DocumentumSink sink = new DocumentumSink(documentumClient, uploadBatcher, uploadExecutor, recordBatcher,
+                kycDocumentUnzipRepository, clientId, documentLinkId);
+        InFlightWindow window = new InFlightWindow(inFlightMaxEntries, inFlightMaxBytes);
+        ExtractionJob job = new ExtractionJob(scope, sink, window, new TaskGraph(failFast), progress, true);
+        return extractionEngine.extract(job, zipFile.toPath(), zipName);
     }
 
-    private ProcessingResult processStream(ZipInputStream zis, String parentPath, String zipName, 
-                                          long compressedSize, long totalSize, 
-                                          String parentDocumentLinkId, String clientId) 
-            throws IOException, ExecutionException, InterruptedException {
-        
-        ZipNode rootNode = new ZipNode(
-                zipName,
-                parentPath.isEmpty() ? zipName : parentPath,
-                compressedSize,
-                totalSize,
-                false,
-                true
-        );
-        rootNode.setChildren(Collections.synchronizedList(new ArrayList<>()));
-
-        List<String> allDocIds = Collections.synchronizedList(new ArrayList<>());
-        List<CompletableFuture<Void>> futures = new ArrayList<>();
-
-        // List to track temp files created in this scope for robust cleanup
-        List<File> tempFilesToClean = new ArrayList<>();
-
-        ZipEntry entry;
-        try {
-            while ((entry = zis.getNextEntry()) != null) {
-                final String entryName = entry.getName();
-                // Ensure the path starts with the root zip name
-                final String currentPath = (parentPath.isEmpty() ? zipName : parentPath) + "/" + entryName;
-                long entryCompressedSize = entry.getCompressedSize();
-
-                if (entry.isDirectory()) {
-                    ZipNode dirNode = new ZipNode(
-                            FilenameUtils.getName(entryName.endsWith("/") ? 
-                                    entryName.substring(0, entryName.length() - 1) : entryName),
-                            currentPath,
-                            entryCompressedSize,
-                            0,
-                            true,
-                            false
-                    );
-                    rootNode.getChildren().add(dirNode);
-                    continue;
-                }
+    /**
+     * Inflated size of the archive according to its central directory, for admission.
+     */
+    private long inflatedSize(File file) throws IOException {
+        try (SpilledArchive archive = entryExtractor.open(file.toPath())) {
+            return ArchivePlan.of(archive).getInflatedBytes();
+        }
+    }
 
-                // Create a temp file for THIS entry
-                Path tempEntryFile = Files.createTempFile("entry_", ".tmp");
-                File processedFile = tempEntryFile.toFile();
-                tempFilesToClean.add(processedFile); // Track for cleanup
-                
-                try (OutputStream out = Files.newOutputStream(tempEntryFile)) {
-                    IOUtils.copy(zis, out);
-                }
-                long actualSize = processedFile.length();
-
-                // Determine if it is a zip file
-                boolean isZip = FilenameUtils.getExtension(entryName).equalsIgnoreCase("zip");
-
-                if (isZip) {
-                    // Recursive processing - using main 'executor'
-                    CompletableFuture<Void> future = processZipFile(processedFile, FilenameUtils.getName(entryName), currentPath, entryCompressedSize, 
-                            parentDocumentLinkId, clientId)
-                            .thenAccept(result -> {
-                                rootNode.getChildren().add(result.node);
-                                allDocIds.addAll(result.docIds);
-                                // processedFile is owned by the recursive call logic, but we track it here too.
-                                // The tracking list in `processZipFile`'s outer scope handles the dir, but 
-                                // for nested zips we need to be careful.
-                                // Actually, for recursion, we should let the recursive call handle its internal cleanup
-                                // but we MUST clean the 'temp zip file' itself afterwards.
-                            });
-                    futures.add(future);
-                } else {
-                    // Upload to Documentum - using 'uploadExecutor' for parallelism
-                    CompletableFuture<Void> future = CompletableFuture.runAsync(() -> {
-                        KycDocumentUnzip childRecord = new KycDocumentUnzip();
-                        childRecord.setClientId(clientId);
-                        childRecord.setParentDocumentLinkId(parentDocumentLinkId);
-                        childRecord.setDocumentName(FilenameUtils.getName(entryName));
-                        childRecord.setDocumentPath(currentPath);
-                        childRecord.setLstUpdDt(LocalDate.now());
-                        childRecord.setLstUpdTime(LocalTime.now());
-
-                        try {
-                            byte[] fileContent = Files.readAllBytes(processedFile.toPath());
-                            String docId = documentumClient.uploadDocument(fileContent, entryName, parentDocumentLinkId);
-                            allDocIds.add(docId);
-                            
-                            // Log the unzipped file to database
-                            childRecord.setDocumentLinkId(docId);
-                            kycDocumentUnzipRepository.save(childRecord);
-
-                            ZipNode fileNode = new ZipNode(
-                                    FilenameUtils.getName(entryName),
-                                    currentPath,
-                                    entryCompressedSize,
-                                    actualSize,
-                                    false,
-                                    false
-                            );
-                            fileNode.setDocumentLinkId(docId);
-                            rootNode.getChildren().add(fileNode);
-
-                            logger.debug("Successfully uploaded file: {} with documentLinkId: {}", entryName, docId);
-                        } catch (Exception e) {
-                             logger.error("Failed to upload/process file: {}", entryName, e);
-                             
-                             // Log error to database for this file
-                             // Use placeholder ID if upload failed to satisfy NOT NULL constraint
-                             childRecord.setDocumentLinkId("ERROR_UPLOAD_FAILED"); 
-                             String errorMsg = e.getMessage();
-                             if (errorMsg != null && errorMsg.length() > 3000) {
-                                 errorMsg = errorMsg.substring(0, 3000);
-                             }
-                             childRecord.setError(errorMsg);
-                             try {
-                                kycDocumentUnzipRepository.save(childRecord);
-                             } catch (Exception dbEx) {
-                                logger.error("Failed to save error record for file: " + entryName, dbEx);
-                             }
-                             
-                             // Re-throw to ensure the main process knows something failed?
-                             // Or suppress? Prompt says "log error... ignore status".
-                             // Usually file processing is atomic or best-effort. 
-                             // If I re-throw, CompletableFuture.allOf().join() will throw.
-                             throw new RuntimeException("Failed to upload file: " + entryName, e);
-                        }
-                    }, uploadExecutor); // Use dedicated upload pool
-                    futures.add(future);
-                }
-            }
+    /**
+     * What a successful unzip produced, from which each request builds the view it asked for.
+     */
+    private static class UnzipOutcome {
+        final String documentLinkId;
+        final String clientId;
+        final long zippedSizeBytes;
+        final ZipNode root;
+        final Map<String, String> failed;
+
+        UnzipOutcome(String documentLinkId, String clientId, long zippedSizeBytes, ExtractionResult result) {
+            this.documentLinkId = documentLinkId;
+            this.clientId = clientId;
+            this.zippedSizeBytes = zippedSizeBytes;
+            this.root = result.getNode();
+            this.failed = result.getFailed();
+        }
+    }
 
-            // Wait for all operations (nested zips AND uploads) coming from this zip stream to complete
-            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
-            
-            return new ProcessingResult(allDocIds, rootNode);
-            
-        } finally {
-             // Cleanup all temp files extracted at this level
-             for (File f : tempFilesToClean) {
-                 if (f.exists()) {
-                     f.delete();
-                 }
-             }
+    private static class RecentResult {
+        final String kycUnzipId;
+        final UnzipOutcome outcome;
+        final long expiresAt;
+
+        RecentResult(String kycUnzipId, UnzipOutcome outcome, long expiresAt) {
+            this.kycUnzipId = kycUnzipId;
+            this.outcome = outcome;
+            this.expiresAt = expiresAt;
         }
     }
 
-    private static class ProcessingResult {
-        List<String> docIds;
-        ZipNode node;
+    private UnzipDetail buildDetail(UnzipOutcome outcome, UnzipDetailView view) {
+        UnzipDetail detail = new UnzipDetail();
+        detail.setDocumentLinkId(outcome.documentLinkId);
+        detail.setClientId(outcome.clientId);
+        detail.setFileName(outcome.root.getName());
+        // Size in KB (approx)
+        detail.setZippedSize(String.valueOf(outcome.zippedSizeBytes / 1024));
+
+        if (view.includesTree()) {
+            Map<String, Object> treeStruct = new LinkedHashMap<>();
+            treeStruct.put(outcome.root.getName(), buildChildrenMap(outcome.root, view.getTreeDepth()));
+            detail.setTreeStruct(treeStruct);
+        }
 
-        public ProcessingResult(List<String> docIds, ZipNode node) {
-            this.docIds = docIds;
-            this.node = node;
+        // Every file counts towards the totals; only the requested page of them is built
+        FilesPage files = new FilesPage(view.includesFiles(), view.getFilesAfter(), view.getFilesLimit());
+        populateFilesUnzipped(outcome.root, files);
+        if (view.includesFiles()) {
+            detail.setFilesUnzipped(files.page);
+            detail.setFilesNextCursor(files.nextCursor);
+        }
+        if (!view.isFull()) {
+            detail.setFilesCount(files.count);
         }
+
+        detail.setUnzippedSize(String.valueOf(files.totalBytes / 1024));
+        detail.setFilesFailed(outcome.failed);
+        return detail;
     }
 
-    private Map<String, Object> buildChildrenMap(ZipNode node) {
-        Map<String, Object> map = new HashMap<>();
+    /**
+     * @param depth levels still to expand below this node, or negative for all
+     */
+    private Object buildChildrenMap(ZipNode node, int depth) {
+        if (depth == 0 && node.getChildren() != null && !node.getChildren().isEmpty()) {
+            return "truncated";
+        }
+        // Entry order, so identical archives always serialize identically
+        Map<String, Object> map = new LinkedHashMap<>();
         if (node.getChildren() != null) {
             for (ZipNode child : node.getChildren()) {
-                map.put(child.getName(), buildChildrenMap(child));
+                map.put(child.getName(), child.getSkipped() != null ? "skipped" : buildChildrenMap(child, depth - 1));
             }
         }
         return map;
     }
 
-    private void populateFilesUnzipped(ZipNode node, Map<String, UnzippedFileDetail> filesUnzipped, AtomicLong totalSizeAccumulator) {
+    private void populateFilesUnzipped(ZipNode node, FilesPage files) {
         if (node.getDocumentLinkId() != null) {
-            long sizeBytes = node.getSize();
-            totalSizeAccumulator.addAndGet(sizeBytes);
-            filesUnzipped.put(node.getPath(), new UnzippedFileDetail(
-                    node.getName(), node.getDocumentLinkId(), String.valueOf(sizeBytes / 1024)
-            ));
+            files.add(node);
         }
         if (node.getChildren() != null) {
             for (ZipNode child : node.getChildren()) {
-                populateFilesUnzipped(child, filesUnzipped, totalSizeAccumulator);
+                populateFilesUnzipped(child, files);
+            }
+        }
+    }
+
+    /**
+     * Totals of all extracted files, plus the files_unzipped entries of one page in archive order: those
+     * after the file at path 'after' (from the start if null), at most 'limit' of them (all if negative).
+     */
+    private static class FilesPage {
+        final Map<String, UnzippedFileDetail> page;
+        final String after;
+        final int limit;
+        boolean started;
+        String nextCursor;
+        String lastPath;
+        int count;
+        long totalBytes;
+
+        FilesPage(boolean build, String after, int limit) {
+            this.page = build ? new LinkedHashMap<>() : null;
+            this.after = after;
+            this.limit = limit;
+            this.started = after == null;
+        }
+
+        void add(ZipNode node) {
+            count++;
+            totalBytes += node.getSize();
+            if (page == null) {
+                return;
+            }
+            if (!started) {
+                // An unknown cursor yields an empty page
+                started = node.getPath().equals(after);
+            } else if (limit < 0 || page.size() < limit) {
+                page.put(node.getPath(), new UnzippedFileDetail(
+                        node.getName(), node.getDocumentLinkId(), String.valueOf(node.getSize() / 1024)));
+                lastPath = node.getPath();
+            } else if (nextCursor == null) {
+                nextCursor = lastPath;
             }
         }
     }
@@ -1,196 +1,115 @@
 package com.unzipper.service;
 
+import com.unzipper.admission.AdmissionController;
+import com.unzipper.admission.AdmissionRejectedException;
+import com.unzipper.admission.AdmissionTicket;
+import com.unzipper.extract.EntrySink;
+import com.unzipper.extract.ExtractionEngine;
+import com.unzipper.extract.ExtractionJob;
+import com.unzipper.extract.ExtractionResult;
+import com.unzipper.extract.LocalFileSink;
+import com.unzipper.extract.MockLatencySink;
+import com.unzipper.extract.NoOpSink;
+import com.unzipper.extract.TaskGraph;
+import com.unzipper.io.ArchivePlan;
+import com.unzipper.io.EntryExtractor;
+import com.unzipper.io.SpilledArchive;
 import com.unzipper.model.UnzipResponse;
-import com.unzipper.model.ZipNode;
+import com.unzipper.storage.TempScope;
+import com.unzipper.storage.TempStorageExhaustedException;
+import com.unzipper.storage.TempStorageManager;
+import com.unzipper.util.InFlightWindow;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.beans.factory.DisposableBean;
 import org.springframework.web.multipart.MultipartFile;
-import org.apache.commons.io.IOUtils;
-import org.apache.commons.io.FilenameUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
 import java.util.concurrent.*;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
 
+/**
+ * Unzip without Documentum: the archive runs through the extraction engine into the sink configured with
+ * unzip.sink (a mock with fixed latency by default, a local directory, or nothing at all).
+ */
 @Service
 public class UnzipService implements DisposableBean {
 
     private static final Logger logger = LoggerFactory.getLogger(UnzipService.class);
 
-    // High performance thread pool for I/O bound tasks
-    private final ExecutorService executor;
-
-    public UnzipService() {
-        // Create a pool optimized for I/O tasks. 
-        // Using a high number of threads since many will be waiting on "upload" I/O.
-        // For CPU bound compression, we are limited by the single stream read, but recursive zips offer parallelism.
-        int threads = Runtime.getRuntime().availableProcessors() * 8; 
-        this.executor = Executors.newFixedThreadPool(threads);
+    // Completes the mock sink's delayed stores and runs the local sink's copies
+    private final ExecutorService sinkExecutor;
+    private final EntryExtractor entryExtractor;
+    private final ExtractionEngine extractionEngine;
+    private final TempStorageManager tempStorage;
+    private final AdmissionController admissionController;
+    private final EntrySink sink;
+    private final int inFlightMaxEntries;
+    private final long inFlightMaxBytes;
+
+    public UnzipService(EntryExtractor entryExtractor, ExtractionEngine extractionEngine, TempStorageManager tempStorage,
+                        AdmissionController admissionController,
+                        @Value("${unzip.sink}") String sinkType,
+                        @Value("${unzip.sink.mock.latency-ms}") long mockLatencyMillis,
+                        @Value("${unzip.sink.local.dir}") String localDir,
+                        @Value("${unzip.inflight.max-entries}") int inFlightMaxEntries,
+                        @Value("${unzip.inflight.max-bytes}") long inFlightMaxBytes) {
+        this.entryExtractor = entryExtractor;
+        this.extractionEngine = extractionEngine;
+        this.tempStorage = tempStorage;
+        this.admissionController = admissionController;
+        this.inFlightMaxEntries = inFlightMaxEntries;
+        this.inFlightMaxBytes = inFlightMaxBytes;
+        this.sinkExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors() * 2);
+        switch (sinkType) {
+            case "mock":
+                this.sink = new MockLatencySink(mockLatencyMillis, sinkExecutor);
+                break;
+            case "local":
+                this.sink = new LocalFileSink(Paths.get(localDir), sinkExecutor);
+                break;
+            case "noop":
+                this.sink = new NoOpSink();
+                break;
+            default:
+                throw new IllegalArgumentException("unzip.sink must be mock, local or noop, was: " + sinkType);
+        }
+        logger.info("/unzip stores extracted files with the {} sink", sinkType);
     }
 
     @Override
     public void destroy() {
-        if (executor != null) {
-            executor.shutdown();
+        if (sinkExecutor != null) {
+            sinkExecutor.shutdown();
         }
     }
 
     public UnzipResponse process(MultipartFile file) {
         logger.debug("Starting processing of file: {} size: {}", file.getOriginalFilename(), file.getSize());
-        try {
-            // Use a temporary directory for processing
-            Path tempDir = Files.createTempDirectory("unzipper_service_");
-            File tempFile = tempDir.resolve(Objects.requireNonNull(file.getOriginalFilename())).toFile();
+        // The ticket holds this request's processing slot; the scope deletes every temp file of the request,
+        // on success and on error
+        try (AdmissionTicket ticket = admissionController.admit();
+             TempScope scope = tempStorage.openScope("unzip")) {
+            File tempFile = scope.newNamedFile(Objects.requireNonNull(file.getOriginalFilename()), file.getSize()).toFile();
             file.transferTo(tempFile);
+            try (SpilledArchive archive = entryExtractor.open(tempFile.toPath())) {
+                ticket.reserve(tempFile.length(), ArchivePlan.of(archive).getInflatedBytes());
+            }
 
-            // Start the recursive process
-            ProcessingResult result = processZipFile(tempFile, "", tempFile.length()).get();
-
-            // Cleanup
-            try {
-                Files.walk(tempDir)
-                    .sorted(Comparator.reverseOrder())
-                    .map(Path::toFile)
-                    .forEach(File::delete);
-            } catch (Exception ignored) {}
+            InFlightWindow window = new InFlightWindow(inFlightMaxEntries, inFlightMaxBytes);
+            ExtractionJob job = new ExtractionJob(scope, sink, window, new TaskGraph(true), null, false);
+            ExtractionResult result = extractionEngine.extract(job, tempFile.toPath(), tempFile.getName());
 
-            return new UnzipResponse(result.docIds, result.node);
+            return new UnzipResponse(result.getDocIds(), result.getNode());
 
+        } catch (AdmissionRejectedException | TempStorageExhaustedException e) {
+            throw e;
         } catch (Exception e) {
             logger.error("Error processing zip file", e);
             throw new RuntimeException("Failed to process zip file", e);
         }
     }
-
-    private CompletableFuture<ProcessingResult> processZipFile(File file, String relativePath, long compressedSize) {
-        return CompletableFuture.supplyAsync(() -> {
-            logger.debug("Processing zip file: {}", file.getName());
-            try (FileInputStream fis = new FileInputStream(file);
-                 ZipInputStream zis = new ZipInputStream(new BufferedInputStream(fis))) {
-                
-                return processStream(zis, relativePath, file.getName(), compressedSize, file.length());
-            } catch (Exception e) {
-                throw new RuntimeException(e);
-            }
-        }, executor);
-    }
-
-    private ProcessingResult processStream(ZipInputStream zis, String parentPath, String zipName, long compressedSize, long totalSize) throws IOException, ExecutionException, InterruptedException {
-        ZipNode rootNode = new ZipNode(
-            zipName,
-            parentPath.isEmpty() ? zipName : parentPath, 
-            compressedSize,
-            totalSize, // This will be updated with sum of children
-            false,
-            true
-        );
-        rootNode.setChildren(Collections.synchronizedList(new ArrayList<>()));
-        
-        List<String> allDocIds = Collections.synchronizedList(new ArrayList<>());
-        List<CompletableFuture<Void>> futures = new ArrayList<>();
-
-        ZipEntry entry;
-        while ((entry = zis.getNextEntry()) != null) {
-            final String entryName = entry.getName();
-            // Normalize path separator
-            final String currentPath = parentPath.isEmpty() ? entryName : parentPath + "/" + entryName;
-            
-            // Capture entry details for the lambda
-            long entryCompressedSize = entry.getCompressedSize();
-
-            if (entry.isDirectory()) {
-                ZipNode dirNode = new ZipNode(
-                    FilenameUtils.getName(entryName.endsWith("/") ? entryName.substring(0, entryName.length() - 1) : entryName),
-                    currentPath,
-                    entryCompressedSize,
-                    0,
-                    true,
-                    false
-                );
-                rootNode.getChildren().add(dirNode);
-                continue;
-            }
-            
-            // Let's create a temp file for THIS entry.
-            Path tempEntryFile = Files.createTempFile("entry_", ".tmp");
-            try (OutputStream out = Files.newOutputStream(tempEntryFile)) {
-                IOUtils.copy(zis, out);
-            }
-
-            File processedFile = tempEntryFile.toFile();
-            long actualSize = processedFile.length();
-            
-            // Determine if it is a zip file
-            boolean isZip = FilenameUtils.getExtension(entryName).equalsIgnoreCase("zip");
-            
-            if (isZip) {
-                // Recurse
-               CompletableFuture<Void> future = processZipFile(processedFile, currentPath, entryCompressedSize)
-                        .thenAccept(result -> {
-                            rootNode.getChildren().add(result.node);
-                            allDocIds.addAll(result.docIds);
-                            // Delete temp file after processing
-                            processedFile.delete();
-                        });
-               futures.add(future);
-            } else {
-                // Upload
-                CompletableFuture<Void> future = CompletableFuture.runAsync(() -> {
-                    try {
-                        String docId = mockUpload(processedFile, currentPath);
-                        allDocIds.add(docId);
-                        
-                        ZipNode fileNode = new ZipNode(
-                                FilenameUtils.getName(entryName),
-                                currentPath,
-                                entryCompressedSize,
-                                actualSize,
-                                false,
-                                false
-                        );
-                        rootNode.getChildren().add(fileNode);
-                        
-                        // Delete temp file after upload
-                        processedFile.delete();
-                    } catch (Exception e) {
-                        throw new RuntimeException(e);
-                    }
-                }, executor);
-                futures.add(future);
-            }
-        }
-
-        // Wait for all children to complete
-        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
-
-        // Calculate total extracted size for the root node (simple sum of children approx)
-        long extractedSize = rootNode.getChildren().stream().mapToLong(ZipNode::getSize).sum();
-        rootNode.setSize(extractedSize);
-
-        return new ProcessingResult(rootNode, allDocIds);
-    }
-
-    // Mock upload service
-    private String mockUpload(File file, String path) throws InterruptedException {
-        // Simulate network latency
-        Thread.sleep(50); 
-        // Return a mock ID
-        return "DOC_" + UUID.nameUUIDFromBytes(path.getBytes()).toString().substring(0, 8);
-    }
-
-    private static class ProcessingResult {
-        final ZipNode node;
-        final List<String> docIds;
-
-        public ProcessingResult(ZipNode node, List<String> docIds) {
-            this.node = node;
-            this.docIds = docIds;
-        }
-    }
 }
@@ -0,0 +1,205 @@
+package com.unzipper.service;
+
+import com.unzipper.client.BatchUploadUnsupportedException;
+import com.unzipper.client.DocumentumClient;
+import com.unzipper.model.BatchUploadItem;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.io.UncheckedIOException;
+import java.net.ConnectException;
+import java.net.UnknownHostException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Groups small-file uploads into Documentum batch requests.
+ *
+ * A batch is sent when it reaches the entry or byte limit, or when the time window since its first
+ * file expires, whichever comes first. Batches are shared across requests; each file gets its own
+ * future with its document_link_id. If Documentum has no batch endpoint, or a batch is known not to
+ * have been applied (a 4xx answer, a failed connect), its files are uploaded one by one so that per-file
+ * errors are reported as before. Any other failure (5xx, timeout, connection lost mid-request) fails
+ * the batch's files: Documentum may already have stored them, and uploading them again would create
+ * duplicate documents.
+ */
+class UploadBatcher implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(UploadBatcher.class);
+
+    private final DocumentumClient documentumClient;
+    private final Executor uploadExecutor;
+    private final int maxEntries;
+    private final long maxBytes;
+    private final long maxEntryBytes;
+    private final long windowMillis;
+    private final ScheduledExecutorService windowTimer;
+
+    // Guarded by 'this'
+    private List<Pending> current = new ArrayList<>();
+    private long currentBytes;
+    private long generation;
+
+    UploadBatcher(DocumentumClient documentumClient, Executor uploadExecutor,
+                  int maxEntries, long maxBytes, long maxEntryBytes, long windowMillis) {
+        this.documentumClient = documentumClient;
+        this.uploadExecutor = uploadExecutor;
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.maxEntryBytes = maxEntryBytes;
+        this.windowMillis = windowMillis;
+        this.windowTimer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "upload-batch-window");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Whether a file of this size should go through {@link #submit} rather than a single upload.
+     */
+    boolean accepts(long size) {
+        return maxEntries > 1 && size <= maxEntryBytes && documentumClient.isBatchUploadSupported();
+    }
+
+    CompletableFuture<String> submit(Path file, String fileName, String parentDocumentLinkId, long size) {
+        Pending pending = new Pending(new BatchUploadItem(fileName, file), parentDocumentLinkId);
+        List<Pending> ready = null;
+        synchronized (this) {
+            if (current.isEmpty()) {
+                long batch = generation;
+                windowTimer.schedule(() -> flushWindow(batch), windowMillis, TimeUnit.MILLISECONDS);
+            }
+            current.add(pending);
+            currentBytes += size;
+            if (current.size() >= maxEntries || currentBytes >= maxBytes) {
+                ready = take();
+            }
+        }
+        if (ready != null) {
+            send(ready);
+        }
+        return pending.future;
+    }
+
+    @Override
+    public void close() {
+        windowTimer.shutdownNow();
+        List<Pending> remaining;
+        synchronized (this) {
+            remaining = take();
+        }
+        remaining.forEach(p -> p.future.completeExceptionally(new IllegalStateException("Upload batcher closed")));
+    }
+
+    private void flushWindow(long batch) {
+        List<Pending> ready = null;
+        synchronized (this) {
+            // The batch may already have been sent because it filled up
+            if (generation == batch && !current.isEmpty()) {
+                ready = take();
+            }
+        }
+        if (ready != null) {
+            send(ready);
+        }
+    }
+
+    // Guarded by 'this'
+    private List<Pending> take() {
+        List<Pending> batch = current;
+        current = new ArrayList<>();
+        currentBytes = 0;
+        generation++;
+        return batch;
+    }
+
+    private void send(List<Pending> batch) {
+        // Files whose request was cancelled while they waited are not uploaded
+        batch.removeIf(p -> p.future.isDone());
+        if (batch.isEmpty()) {
+            return;
+        }
+        if (batch.size() == 1) {
+            uploadSingly(batch);
+            return;
+        }
+        CompletableFuture.runAsync(() -> {
+            List<BatchUploadItem> items = new ArrayList<>(batch.size());
+            batch.forEach(p -> items.add(p.item));
+            List<String> documentLinkIds = documentumClient.uploadDocumentBatch(items);
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).future.complete(documentLinkIds.get(i));
+            }
+        }, uploadExecutor).exceptionally(e -> {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            if (!notApplied(cause)) {
+                logger.warn("Batch upload of {} documents failed and may have been stored, not retrying: {}",
+                        batch.size(), cause.getMessage());
+                batch.forEach(p -> p.future.completeExceptionally(cause));
+                return null;
+            }
+            if (!(cause instanceof BatchUploadUnsupportedException)) {
+                logger.warn("Batch upload of {} documents was not applied, retrying one by one: {}", batch.size(), cause.getMessage());
+            }
+            uploadSingly(batch);
+            return null;
+        });
+    }
+
+    /**
+     * Whether a failed batch certainly stored nothing, so its files can safely be uploaded again.
+     */
+    private static boolean notApplied(Throwable cause) {
+        if (cause instanceof BatchUploadUnsupportedException || cause instanceof UncheckedIOException) {
+            return true;
+        }
+        if (cause instanceof WebClientResponseException) {
+            return ((WebClientResponseException) cause).getStatusCode().is4xxClientError();
+        }
+        if (cause instanceof WebClientRequestException) {
+            // Only a connection that was never established; a reset or timeout may come after the request was read
+            for (Throwable t = cause.getCause(); t != null; t = t.getCause()) {
+                if (t instanceof ConnectException || t instanceof UnknownHostException) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void uploadSingly(List<Pending> batch) {
+        for (Pending p : batch) {
+            if (p.future.isDone()) {
+                continue;
+            }
+            CompletableFuture.supplyAsync(() -> documentumClient.uploadDocument(p.item.getFile(), p.item.getFilename(), p.parentDocumentLinkId), uploadExecutor)
+                    .whenComplete((documentLinkId, e) -> {
+                        if (e != null) {
+                            p.future.completeExceptionally(e.getCause() != null ? e.getCause() : e);
+                        } else {
+                            p.future.complete(documentLinkId);
+                        }
+                    });
+        }
+    }
+
+    private static class Pending {
+        final BatchUploadItem item;
+        final String parentDocumentLinkId;
+        final CompletableFuture<String> future = new CompletableFuture<>();
+
+        Pending(BatchUploadItem item, String parentDocumentLinkId) {
+            this.item = item;
+            this.parentDocumentLinkId = parentDocumentLinkId;
+        }
+    }
+}
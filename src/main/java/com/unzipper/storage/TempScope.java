@@ -0,0 +1,118 @@
+package com.unzipper.storage;
+
+import org.apache.commons.io.FilenameUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Temp files belonging to one request. Every file is accounted against the storage quota until it
+ * is deleted, and closing the scope deletes whatever is left, including nested-archive files.
+ * Safe to use from several threads.
+ */
+public class TempScope implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(TempScope.class);
+
+    private final TempStorageManager manager;
+    private final String name;
+    private final Map<Path, Allocation> allocations = new ConcurrentHashMap<>();
+    private volatile boolean closed;
+
+    TempScope(TempStorageManager manager, String name) {
+        this.manager = manager;
+        this.name = name;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    /**
+     * Create an empty temp file for roughly {@code expectedBytes} of data (-1 if unknown).
+     * Small files go to the fast tier when one is configured and has room.
+     */
+    public Path newFile(String prefix, long expectedBytes) throws IOException {
+        Allocation allocation = manager.reserve(this, expectedBytes);
+        try {
+            Path file = Files.createTempFile(allocation.tier.scopeDir(this), prefix, ".tmp");
+            allocations.put(file, allocation);
+            return file;
+        } catch (IOException | RuntimeException e) {
+            manager.release(allocation);
+            throw e;
+        }
+    }
+
+    /**
+     * Like {@link #newFile} but keeps the given file name, for callers that report it back.
+     */
+    public Path newNamedFile(String fileName, long expectedBytes) throws IOException {
+        Allocation allocation = manager.reserve(this, expectedBytes);
+        try {
+            Path file = Files.createFile(allocation.tier.scopeDir(this).resolve(FilenameUtils.getName(fileName)));
+            allocations.put(file, allocation);
+            return file;
+        } catch (IOException | RuntimeException e) {
+            manager.release(allocation);
+            throw e;
+        }
+    }
+
+    /**
+     * Re-account a file at its actual size once it has been written.
+     */
+    public void settle(Path file) {
+        Allocation allocation = allocations.get(file);
+        if (allocation == null) {
+            return;
+        }
+        try {
+            manager.resize(allocation, Files.size(file));
+        } catch (IOException e) {
+            logger.debug("Could not size temp file {}", file, e);
+        }
+    }
+
+    /**
+     * Delete a file before the scope ends and return its space to the quota.
+     */
+    public void delete(Path file) {
+        Allocation allocation = allocations.remove(file);
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.warn("Failed to delete temp file {}", file, e);
+        }
+        if (allocation != null) {
+            manager.release(allocation);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (Path file : allocations.keySet()) {
+            delete(file);
+        }
+        manager.closeScope(this);
+    }
+
+    static final class Allocation {
+        final TempStorageManager.Tier tier;
+        long bytes;
+
+        Allocation(TempStorageManager.Tier tier, long bytes) {
+            this.tier = tier;
+            this.bytes = bytes;
+        }
+    }
+}
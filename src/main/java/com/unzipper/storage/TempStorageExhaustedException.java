@@ -0,0 +1,18 @@
+package com.unzipper.storage;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when temp storage could not be reserved within the admission timeout.
+ * The request was never started, so it is safe to retry later.
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class TempStorageExhaustedException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public TempStorageExhaustedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,339 @@
+package com.unzipper.storage;
+
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Owns every temp file the service writes.
+ *
+ * Files live in per-request {@link TempScope}s under configurable roots: an optional fast root
+ * (e.g. a tmpfs mount) for small entries and a disk root for everything else. Disk usage is held
+ * under a byte quota and a free-space floor; requests that would exceed either wait for room
+ * (admission control) instead of failing half-way with a full disk. A background janitor removes
+ * scope directories left behind by crashed processes and by pre-manager versions of the service.
+ *
+ * The roots may be shared by several pods or containers, whose PIDs overlap. Scope directories therefore
+ * name their host (hostname, boot id and PID namespace): owners on this host are checked by PID and start
+ * time, while those of other hosts cannot be checked and are only removed once idle for the orphan age.
+ */
+@Component
+public class TempStorageManager implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(TempStorageManager.class);
+
+    // Free space is not signalled when other processes release it, so waiters re-check periodically
+    private static final long FREE_SPACE_POLL_MS = 500;
+    private static final String[] LEGACY_PREFIXES = {"unzipper_service_", "unzipper_upload_", "entry_"};
+
+    private final Tier disk;
+    private final Tier fast;
+    private final long fastMaxEntryBytes;
+    private final long minFreeBytes;
+    private final long admissionTimeoutMillis;
+    private final long orphanAgeMillis;
+
+    // Scope directories are named <host id>-<pid>-<process start millis>-<scope> so the janitor can tell live
+    // owners from dead ones
+    private final String hostId;
+    private final String processToken;
+    private final Map<String, TempScope> liveScopes = new ConcurrentHashMap<>();
+    private final AtomicLong scopeSequence = new AtomicLong();
+    private final ScheduledExecutorService janitor;
+
+    public TempStorageManager(@Value("${unzip.temp.dir}") String diskDir,
+                              @Value("${unzip.temp.max-bytes}") long diskMaxBytes,
+                              @Value("${unzip.temp.min-free-bytes}") long minFreeBytes,
+                              @Value("${unzip.temp.fast.dir}") String fastDir,
+                              @Value("${unzip.temp.fast.max-bytes}") long fastMaxBytes,
+                              @Value("${unzip.temp.fast.max-entry-bytes}") long fastMaxEntryBytes,
+                              @Value("${unzip.temp.admission-timeout-ms}") long admissionTimeoutMillis,
+                              @Value("${unzip.temp.janitor.interval-ms}") long janitorIntervalMillis,
+                              @Value("${unzip.temp.janitor.orphan-age-ms}") long orphanAgeMillis) {
+        this.disk = new Tier(Paths.get(diskDir), diskMaxBytes);
+        this.fast = fastDir == null || fastDir.isBlank() ? null : new Tier(Paths.get(fastDir), fastMaxBytes);
+        this.fastMaxEntryBytes = fastMaxEntryBytes;
+        this.minFreeBytes = minFreeBytes;
+        this.admissionTimeoutMillis = admissionTimeoutMillis;
+        this.orphanAgeMillis = orphanAgeMillis;
+
+        ProcessHandle self = ProcessHandle.current();
+        this.hostId = hostId();
+        this.processToken = hostId + "-" + self.pid() + "-" + self.info().startInstant().map(Instant::toEpochMilli).orElse(0L);
+
+        try {
+            Files.createDirectories(disk.root);
+            if (fast != null) {
+                Files.createDirectories(fast.root);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to prepare temp storage roots", e);
+        }
+        logger.info("Temp storage: disk {} (quota {} bytes, min free {} bytes), fast {}",
+                disk.root, diskMaxBytes, minFreeBytes,
+                fast != null ? fast.root + " (quota " + fastMaxBytes + " bytes, max entry " + fastMaxEntryBytes + " bytes)" : "disabled");
+
+        this.janitor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "temp-storage-janitor");
+            t.setDaemon(true);
+            return t;
+        });
+        janitor.execute(this::sweepLegacyTempDir);
+        janitor.scheduleWithFixedDelay(this::sweepOrphans, 0, janitorIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() {
+        janitor.shutdownNow();
+        for (TempScope scope : liveScopes.values()) {
+            scope.close();
+        }
+    }
+
+    /**
+     * Open a scope for one request; close it (try-with-resources) to delete everything it created.
+     */
+    public TempScope openScope(String label) {
+        TempScope scope = new TempScope(this, label + "-" + scopeSequence.incrementAndGet());
+        liveScopes.put(scope.getName(), scope);
+        return scope;
+    }
+
+    TempScope.Allocation reserve(TempScope scope, long expectedBytes) throws IOException {
+        long bytes = Math.max(expectedBytes, 0);
+        if (fast != null && expectedBytes >= 0 && expectedBytes <= fastMaxEntryBytes) {
+            synchronized (this) {
+                if (fast.used + bytes <= fast.maxBytes) {
+                    fast.used += bytes;
+                    return new TempScope.Allocation(fast, bytes);
+                }
+            }
+            // Fast tier full: spill to disk rather than wait
+        }
+
+        long deadline = System.currentTimeMillis() + admissionTimeoutMillis;
+        synchronized (this) {
+            boolean waited = false;
+            while (!diskAdmits(bytes)) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    throw new TempStorageExhaustedException("Temp storage exhausted: " + bytes + " bytes requested, "
+                            + disk.used + " of " + disk.maxBytes + " bytes in use");
+                }
+                if (!waited) {
+                    logger.info("Scope {} waiting for {} bytes of temp storage ({} of {} bytes in use)",
+                            scope.getName(), bytes, disk.used, disk.maxBytes);
+                    waited = true;
+                }
+                try {
+                    wait(Math.min(remaining, FREE_SPACE_POLL_MS));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for temp storage");
+                }
+            }
+            disk.used += bytes;
+            return new TempScope.Allocation(disk, bytes);
+        }
+    }
+
+    /**
+     * Bytes that can still be reserved on the disk root right now, under both the quota and the free-space floor.
+     */
+    public synchronized long availableDiskBytes() {
+        long available = disk.maxBytes - disk.used;
+        try {
+            available = Math.min(available, Files.getFileStore(disk.root).getUsableSpace() - minFreeBytes);
+        } catch (IOException e) {
+            // Same as diskAdmits: an unreadable file store does not block admission
+        }
+        return Math.max(available, 0);
+    }
+
+    // Guarded by 'this'. A reservation larger than the whole quota is still admitted when nothing else is in use.
+    private boolean diskAdmits(long bytes) {
+        if (disk.used > 0 && disk.used + bytes > disk.maxBytes) {
+            return false;
+        }
+        try {
+            return Files.getFileStore(disk.root).getUsableSpace() - bytes >= minFreeBytes;
+        } catch (IOException e) {
+            return true;
+        }
+    }
+
+    synchronized void resize(TempScope.Allocation allocation, long actualBytes) {
+        allocation.tier.used += actualBytes - allocation.bytes;
+        boolean shrunk = actualBytes < allocation.bytes;
+        allocation.bytes = actualBytes;
+        if (shrunk) {
+            notifyAll();
+        }
+    }
+
+    synchronized void release(TempScope.Allocation allocation) {
+        allocation.tier.used -= allocation.bytes;
+        allocation.bytes = 0;
+        notifyAll();
+    }
+
+    void closeScope(TempScope scope) {
+        liveScopes.remove(scope.getName());
+        disk.removeScopeDir(scope);
+        if (fast != null) {
+            fast.removeScopeDir(scope);
+        }
+    }
+
+    private void sweepOrphans() {
+        try {
+            sweep(disk.root);
+            if (fast != null) {
+                sweep(fast.root);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Temp storage janitor run failed", e);
+        }
+    }
+
+    private void sweep(Path root) {
+        long cutoff = System.currentTimeMillis() - orphanAgeMillis;
+        try (Stream<Path> dirs = Files.list(root)) {
+            dirs.filter(dir -> isOrphan(dir.getFileName().toString(), lastModified(dir), cutoff))
+                    .forEach(dir -> {
+                        logger.info("Removing orphaned temp directory {}", dir);
+                        FileUtils.deleteQuietly(dir.toFile());
+                    });
+        } catch (IOException e) {
+            logger.warn("Failed to scan temp root {}", root, e);
+        }
+    }
+
+    private boolean isOrphan(String dirName, long lastModified, long cutoff) {
+        String[] parts = dirName.split("-", 4);
+        if (parts.length < 4 || !parts[0].equals(hostId)) {
+            // Another host's (or an older version's) directory: its owner cannot be checked from here
+            return lastModified < cutoff;
+        }
+        String owner = parts[0] + "-" + parts[1] + "-" + parts[2];
+        if (owner.equals(processToken)) {
+            // Ours: only orphaned if its scope was never closed and it has been idle for a long time
+            return !liveScopes.containsKey(parts[3]) && lastModified < cutoff;
+        }
+        try {
+            long pid = Long.parseLong(parts[1]);
+            long started = Long.parseLong(parts[2]);
+            Optional<Instant> ownerStart = ProcessHandle.of(pid).flatMap(p -> p.info().startInstant());
+            // A recycled pid (common in containers) has a different start time, so the owner is gone
+            return ownerStart.map(i -> i.toEpochMilli() != started).orElse(true);
+        } catch (NumberFormatException e) {
+            return lastModified < cutoff;
+        }
+    }
+
+    /**
+     * Identifies the PID namespace this process runs in: two processes with the same id see the same PIDs.
+     * Pods and containers differ in hostname, containers sharing the host network in PID namespace.
+     */
+    private static String hostId() {
+        StringBuilder identity = new StringBuilder();
+        String hostname = System.getenv("HOSTNAME");
+        if (hostname == null || hostname.isBlank()) {
+            try {
+                hostname = InetAddress.getLocalHost().getHostName();
+            } catch (IOException e) {
+                hostname = "";
+            }
+        }
+        identity.append(hostname);
+        try {
+            identity.append('/').append(Files.readString(Paths.get("/proc/sys/kernel/random/boot_id")).trim());
+            identity.append('/').append(Files.readSymbolicLink(Paths.get("/proc/self/ns/pid")));
+        } catch (IOException | UnsupportedOperationException e) {
+            // Not Linux: the hostname has to do
+        }
+        return UUID.nameUUIDFromBytes(identity.toString().getBytes(StandardCharsets.UTF_8)).toString()
+                .replace("-", "").substring(0, 12);
+    }
+
+    private void sweepLegacyTempDir() {
+        Path tmp = Paths.get(System.getProperty("java.io.tmpdir"));
+        long cutoff = System.currentTimeMillis() - orphanAgeMillis;
+        try (Stream<Path> files = Files.list(tmp)) {
+            files.filter(f -> isLegacyTempFile(f.getFileName().toString()) && lastModified(f) < cutoff)
+                    .forEach(f -> {
+                        logger.info("Removing stale temp file {}", f);
+                        FileUtils.deleteQuietly(f.toFile());
+                    });
+        } catch (IOException e) {
+            logger.warn("Failed to scan {} for stale temp files", tmp, e);
+        }
+    }
+
+    private static boolean isLegacyTempFile(String name) {
+        for (String prefix : LEGACY_PREFIXES) {
+            if (name.startsWith(prefix) && (!prefix.equals("entry_") || name.endsWith(".tmp"))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    final class Tier {
+        final Path root;
+        final long maxBytes;
+        long used; // guarded by the manager
+        private final Map<String, Path> scopeDirs = new ConcurrentHashMap<>();
+
+        Tier(Path root, long maxBytes) {
+            this.root = root;
+            this.maxBytes = maxBytes;
+        }
+
+        Path scopeDir(TempScope scope) throws IOException {
+            Path dir = scopeDirs.get(scope.getName());
+            if (dir == null) {
+                dir = Files.createDirectories(root.resolve(processToken + "-" + scope.getName()));
+                scopeDirs.put(scope.getName(), dir);
+            }
+            return dir;
+        }
+
+        void removeScopeDir(TempScope scope) {
+            Path dir = scopeDirs.remove(scope.getName());
+            if (dir != null) {
+                FileUtils.deleteQuietly(dir.toFile());
+            }
+        }
+    }
+}
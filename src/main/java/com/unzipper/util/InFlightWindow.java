@@ -0,0 +1,37 @@
+package com.unzipper.util;
+
+/**
+ * Bounds the work between a producer and its consumers by entry count and by bytes.
+ *
+ * The producer calls {@link #acquire} before it creates an entry and blocks while the window is full;
+ * consumers call {@link #release} with the same size once the entry is done. An entry larger than the
+ * whole byte window is let through alone, so it can never block forever.
+ */
+public class InFlightWindow {
+
+    private final int maxEntries;
+    private final long maxBytes;
+
+    // Guarded by 'this'
+    private int entries;
+    private long bytes;
+
+    public InFlightWindow(int maxEntries, long maxBytes) {
+        this.maxEntries = Math.max(1, maxEntries);
+        this.maxBytes = Math.max(1, maxBytes);
+    }
+
+    public synchronized void acquire(long size) throws InterruptedException {
+        while (entries > 0 && (entries >= maxEntries || bytes + size > maxBytes)) {
+            wait();
+        }
+        entries++;
+        bytes += size;
+    }
+
+    public synchronized void release(long size) {
+        entries--;
+        bytes -= size;
+        notifyAll();
+    }
+}
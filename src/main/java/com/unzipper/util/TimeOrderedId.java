@@ -0,0 +1,44 @@
+package com.unzipper.util;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Time-ordered UUIDs in the version 7 layout: 48 bits of Unix milliseconds, then a counter that keeps
+ * ids from the same millisecond ascending, then random bits.
+ *
+ * Consecutive ids share a prefix and sort after all earlier ones, so inserts keyed by them land at the
+ * right-hand edge of the primary key index instead of on a random leaf block each time, as random UUIDs do.
+ * They are still 36-character UUID strings and fit the existing key column.
+ */
+public final class TimeOrderedId {
+
+    // Guarded by TimeOrderedId.class
+    private static long lastMillis;
+    private static int sequence;
+
+    private TimeOrderedId() {
+    }
+
+    public static String next() {
+        long millis;
+        int seq;
+        synchronized (TimeOrderedId.class) {
+            millis = Math.max(System.currentTimeMillis(), lastMillis);
+            if (millis == lastMillis) {
+                sequence = (sequence + 1) & 0xFFF;
+                if (sequence == 0) {
+                    // 4096 ids in one millisecond: borrow the next one rather than go backwards
+                    millis++;
+                }
+            } else {
+                sequence = 0;
+            }
+            lastMillis = millis;
+            seq = sequence;
+        }
+        long high = (millis << 16) | 0x7000L | seq;
+        long low = (ThreadLocalRandom.current().nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(high, low).toString();
+    }
+}
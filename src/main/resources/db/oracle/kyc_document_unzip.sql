@@ -0,0 +1,53 @@
+-- kyc_document_unzip for Oracle, matching com.unzipper.entity.KycDocumentUnzip.
+-- Run part 1 on a new database, or part 2 to migrate a table created by an earlier version
+-- (random UUID keys, DOCUMENT_PATH as CLOB, no secondary indexes). Existing keys are kept as they are.
+
+-- 1. New database ------------------------------------------------------------------------------------
+
+CREATE TABLE kyc_document_unzip (
+    kyc_unzip_id            VARCHAR2(36 CHAR)    NOT NULL,
+    client_id               VARCHAR2(255 CHAR),
+    document_link_id        VARCHAR2(255 CHAR)   NOT NULL,
+    document_name           VARCHAR2(255 CHAR),
+    document_type           VARCHAR2(100 CHAR),
+    parent_document_link_id VARCHAR2(255 CHAR),
+    lst_upd_time            DATE,
+    lst_upd_dt              DATE,
+    document_path           VARCHAR2(4000 BYTE),
+    document_path_lob       CLOB,
+    status                  NUMBER(1, 0),
+    error                   VARCHAR2(3000 CHAR),
+    CONSTRAINT pk_kyc_document_unzip PRIMARY KEY (kyc_unzip_id)
+);
+
+CREATE INDEX ix_kyc_unzip_client_link ON kyc_document_unzip (client_id, document_link_id, lst_upd_dt, lst_upd_time);
+CREATE INDEX ix_kyc_unzip_parent ON kyc_document_unzip (parent_document_link_id, kyc_unzip_id);
+
+-- 2. Migrate an existing table ------------------------------------------------------------------------
+
+-- ALTER TABLE kyc_document_unzip RENAME COLUMN document_path TO document_path_lob;
+-- ALTER TABLE kyc_document_unzip ADD (document_path VARCHAR2(4000 BYTE));
+--
+-- -- Up to 1000 characters always fit in 4000 bytes
+-- UPDATE kyc_document_unzip
+--    SET document_path = dbms_lob.substr(document_path_lob, 1000, 1), document_path_lob = NULL
+--  WHERE document_path_lob IS NOT NULL AND dbms_lob.getlength(document_path_lob) <= 1000;
+-- COMMIT;
+--
+-- -- Longer paths move only if their bytes fit; the rest stay in the CLOB
+-- DECLARE
+--     path VARCHAR2(32767);
+-- BEGIN
+--     FOR r IN (SELECT rowid AS rid, document_path_lob FROM kyc_document_unzip
+--                WHERE document_path_lob IS NOT NULL AND dbms_lob.getlength(document_path_lob) <= 4000) LOOP
+--         path := dbms_lob.substr(r.document_path_lob, 4000, 1);
+--         IF lengthb(path) <= 4000 THEN
+--             UPDATE kyc_document_unzip SET document_path = path, document_path_lob = NULL WHERE rowid = r.rid;
+--         END IF;
+--     END LOOP;
+--     COMMIT;
+-- END;
+-- /
+--
+-- CREATE INDEX ix_kyc_unzip_client_link ON kyc_document_unzip (client_id, document_link_id, lst_upd_dt, lst_upd_time) ONLINE;
+-- CREATE INDEX ix_kyc_unzip_parent ON kyc_document_unzip (parent_document_link_id, kyc_unzip_id) ONLINE;
@@ -0,0 +1,238 @@
+package com.unzipper.io;
+
+import org.apache.commons.compress.archivers.zip.Zip64Mode;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ArchivePlanTest {
+
+    // Maps every archive, the path large archives take in production
+    private final EntryExtractor extractor = new EntryExtractor(8192, 4, 0);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void directoriesThenNestedArchivesThenFilesLargestFirst() throws IOException {
+        Path zip = zip(entries(
+                "small.txt", 10,
+                "docs/", 0,
+                "inner.zip", 50,
+                "big.pdf", 300,
+                "docs/mid.jpg", 100,
+                "same-a.txt", 100,
+                "other.ZIP", 20));
+
+        ArchivePlan plan = plan(zip, null);
+
+        assertThat(names(plan)).containsExactly(
+                "docs/", "inner.zip", "other.ZIP", "big.pdf", "docs/mid.jpg", "same-a.txt", "small.txt");
+        // Ties on size keep archive order
+        assertThat(plan.getSchedule().get(4).getIndex()).isLessThan(plan.getSchedule().get(5).getIndex());
+        assertThat(plan.getEntryCount()).isEqualTo(7);
+        assertThat(plan.getFileCount()).isEqualTo(4);
+        assertThat(plan.getNestedCount()).isEqualTo(2);
+        assertThat(plan.getFileBytes()).isEqualTo(510);
+        assertThat(plan.getInflatedBytes()).isEqualTo(580);
+        assertThat(plan.getLargestEntryBytes()).isEqualTo(300);
+    }
+
+    @Test
+    void indexesFollowArchiveOrder() throws IOException {
+        Path zip = zip(entries("a.txt", 1, "b.txt", 3, "c.txt", 2));
+
+        Map<String, Integer> indexes = plan(zip, null).getSchedule().stream()
+                .collect(Collectors.toMap(p -> p.getEntry().getName(), ArchivePlan.PlannedEntry::getIndex));
+
+        assertThat(indexes).containsExactlyInAnyOrderEntriesOf(Map.of("a.txt", 0, "b.txt", 1, "c.txt", 2));
+    }
+
+    @Test
+    void indexesFollowPhysicalOrderWhenTheCentralDirectoryIsReordered() throws IOException {
+        Path zip = zip(entries("a.txt", 1, "b.txt", 1, "c.txt", 1));
+        reverseCentralDirectory(zip);
+
+        ArchivePlan plan = plan(zip, null);
+
+        // Equal sizes: the schedule is in physical order, whatever order the central directory lists
+        assertThat(names(plan)).containsExactly("a.txt", "b.txt", "c.txt");
+        assertThat(plan.getSchedule()).extracting(ArchivePlan.PlannedEntry::getIndex).containsExactly(0, 1, 2);
+    }
+
+    @ParameterizedTest(name = "[{index}] {0} -> nested {1}")
+    @CsvSource({
+            "inner.zip, true",
+            "a/b/INNER.Zip, true",
+            "inner.zip.pdf, false",
+            "zip, false",
+            "inner.7z, false",
+            "inner.zipx, false",
+            "archives.zip/, false"
+    })
+    void nestedArchivesAreRecognisedByExtension(String name, boolean nested) throws IOException {
+        Path zip = zip(entries(name, name.endsWith("/") ? 0 : 10));
+
+        ArchivePlan.PlannedEntry planned = plan(zip, null).getSchedule().get(0);
+
+        assertThat(planned.isNested()).isEqualTo(nested);
+    }
+
+    @Test
+    void skippedEntriesArePlannedFirstAndCountInNoTotal() throws IOException {
+        Path zip = zip(entries(
+                "keep.pdf", 100,
+                "Thumbs.db", 500,
+                "__MACOSX/._keep.pdf", 50,
+                "empty.txt", 0,
+                "inner.zip", 30,
+                "__MACOSX/inner.zip", 30));
+        EntryFilter filter = new EntryFilter(true, "", "Thumbs.db,__MACOSX", "", "", "", "", 1, 0);
+
+        ArchivePlan plan = plan(zip, filter);
+
+        // Skipped entries by size, largest first, like everything else
+        assertThat(names(plan)).containsExactly(
+                "Thumbs.db", "__MACOSX/._keep.pdf", "__MACOSX/inner.zip", "empty.txt", "inner.zip", "keep.pdf");
+        assertThat(plan.getSchedule()).extracting(ArchivePlan.PlannedEntry::getSkipReason).containsExactly(
+                "excluded by thumbs.db", "excluded by __macosx", "excluded by __macosx", "empty", null, null);
+        assertThat(plan.getEntryCount()).isEqualTo(6);
+        assertThat(plan.getFileCount()).isEqualTo(1);
+        assertThat(plan.getNestedCount()).isEqualTo(1);
+        assertThat(plan.getFileBytes()).isEqualTo(100);
+        assertThat(plan.getInflatedBytes()).isEqualTo(130);
+        assertThat(plan.getLargestEntryBytes()).isEqualTo(100);
+    }
+
+    @Test
+    void streamedEntriesArePlannedWithTheSizesFromTheCentralDirectory() throws IOException {
+        // Written to a stream, so sizes go to data descriptors and the local headers say 0
+        Path zip = dir.resolve("streamed.zip");
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(zip))) {
+            for (String name : List.of("small.txt", "big.txt")) {
+                out.putNextEntry(new ZipEntry(name));
+                out.write(new byte[name.equals("big.txt") ? 4000 : 40]);
+                out.closeEntry();
+            }
+        }
+
+        ArchivePlan plan = plan(zip, null);
+
+        assertThat(names(plan)).containsExactly("big.txt", "small.txt");
+        assertThat(plan.getSchedule()).extracting(ArchivePlan.PlannedEntry::getSize).containsExactly(4000L, 40L);
+        assertThat(plan.getFileBytes()).isEqualTo(4040);
+    }
+
+    @Test
+    void zip64ArchivesArePlannedLikeAnyOther() throws IOException {
+        Path zip = dir.resolve("zip64.zip");
+        try (ZipArchiveOutputStream out = new ZipArchiveOutputStream(zip)) {
+            out.setUseZip64(Zip64Mode.Always);
+            for (Object[] entry : entries("small.txt", 10, "dir/", 0, "big.txt", 2000, "inner.zip", 20)) {
+                ZipArchiveEntry zipEntry = new ZipArchiveEntry((String) entry[0]);
+                out.putArchiveEntry(zipEntry);
+                out.write(new byte[(Integer) entry[1]]);
+                out.closeArchiveEntry();
+            }
+        }
+
+        ArchivePlan plan = plan(zip, null);
+
+        assertThat(names(plan)).containsExactly("dir/", "inner.zip", "big.txt", "small.txt");
+        assertThat(plan.getSchedule()).extracting(ArchivePlan.PlannedEntry::getSize)
+                .containsExactly(0L, 20L, 2000L, 10L);
+        assertThat(plan.getFileCount()).isEqualTo(2);
+        assertThat(plan.getNestedCount()).isEqualTo(1);
+        assertThat(plan.getInflatedBytes()).isEqualTo(2030);
+    }
+
+    @Test
+    void emptyArchiveHasAnEmptyPlan() throws IOException {
+        ArchivePlan plan = plan(zip(entries()), null);
+
+        assertThat(plan.getSchedule()).isEmpty();
+        assertThat(plan.getFileCount()).isZero();
+        assertThat(plan.getLargestEntryBytes()).isZero();
+    }
+
+    private ArchivePlan plan(Path zip, EntryFilter filter) throws IOException {
+        try (SpilledArchive archive = extractor.open(zip)) {
+            return ArchivePlan.of(archive, filter);
+        }
+    }
+
+    private static List<String> names(ArchivePlan plan) {
+        return plan.getSchedule().stream().map(p -> p.getEntry().getName()).collect(Collectors.toList());
+    }
+
+    /** Pairs of entry name and size; names ending in '/' are directories. */
+    private static List<Object[]> entries(Object... namesAndSizes) {
+        List<Object[]> entries = new ArrayList<>();
+        for (int i = 0; i < namesAndSizes.length; i += 2) {
+            entries.add(new Object[] {namesAndSizes[i], namesAndSizes[i + 1]});
+        }
+        return entries;
+    }
+
+    private Path zip(List<Object[]> entries) throws IOException {
+        Path zip = Files.createTempFile(dir, "plan", ".zip");
+        try (OutputStream file = Files.newOutputStream(zip); ZipOutputStream out = new ZipOutputStream(file)) {
+            for (Object[] entry : entries) {
+                out.putNextEntry(new ZipEntry((String) entry[0]));
+                // Varied bytes, so sizes are not mistaken for compressed sizes
+                byte[] data = new byte[(Integer) entry[1]];
+                for (int j = 0; j < data.length; j++) {
+                    data[j] = (byte) (j * 31);
+                }
+                out.write(data);
+                out.closeEntry();
+            }
+        }
+        return zip;
+    }
+
+    /**
+     * Rewrite the central directory with its records in reverse, leaving the local entries in place.
+     */
+    private static void reverseCentralDirectory(Path zip) throws IOException {
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(zip)).order(ByteOrder.LITTLE_ENDIAN);
+        int end = bytes.limit() - 22; // no archive comment
+        assertThat(bytes.getInt(end)).isEqualTo(0x06054b50);
+        int size = bytes.getInt(end + 12);
+        int offset = bytes.getInt(end + 16);
+
+        List<byte[]> records = new ArrayList<>();
+        for (int position = offset; position < offset + size; ) {
+            int length = 46 + bytes.getShort(position + 28) + bytes.getShort(position + 30)
+                    + bytes.getShort(position + 32);
+            byte[] record = new byte[length];
+            bytes.get(position, record);
+            records.add(record);
+            position += length;
+        }
+        int position = offset;
+        for (int i = records.size() - 1; i >= 0; i--) {
+            bytes.put(position, records.get(i));
+            position += records.get(i).length;
+        }
+        Files.write(zip, bytes.array());
+    }
+}
@@ -0,0 +1,150 @@
+package com.unzipper.io;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Each case runs against a memory mapped archive (mmap threshold 0) and one read through the channel.
+ */
+class EntryExtractorTest {
+
+    private static final int BUFFER_BYTES = 4096;
+    private static final int ENTRY_BYTES = 100_000;
+    private static final int DECLARED_BYTES = 1_000;
+
+    // Central directory file header fields
+    private static final int CRC_FIELD = 16;
+    private static final int SIZE_FIELD = 24;
+    // Local file header field
+    private static final int LOCAL_SIZE_FIELD = 22;
+
+    @TempDir
+    Path dir;
+
+    @ParameterizedTest(name = "mmap from {0} bytes")
+    @ValueSource(longs = {0, Long.MAX_VALUE})
+    void extractsDeflatedAndStoredEntries(long mmapMinBytes) throws IOException {
+        EntryExtractor extractor = new EntryExtractor(BUFFER_BYTES, 4, mmapMinBytes);
+        for (int method : new int[] {ZipEntry.DEFLATED, ZipEntry.STORED}) {
+            Path zip = zip(method);
+            Path target = dir.resolve("out-" + method);
+
+            try (SpilledArchive archive = extractor.open(zip)) {
+                assertThat(extractor.extract(archive, entry(archive), target)).isEqualTo(ENTRY_BYTES);
+            }
+            assertThat(Files.readAllBytes(target)).isEqualTo(content());
+        }
+    }
+
+    @ParameterizedTest(name = "mmap from {0} bytes")
+    @ValueSource(longs = {0, Long.MAX_VALUE})
+    void deflatedEntryStopsAtItsDeclaredSize(long mmapMinBytes) throws IOException {
+        EntryExtractor extractor = new EntryExtractor(BUFFER_BYTES, 4, mmapMinBytes);
+        Path zip = zip(ZipEntry.DEFLATED);
+        patchCentralDirectory(zip, SIZE_FIELD, DECLARED_BYTES);
+        Path target = dir.resolve("out");
+
+        try (SpilledArchive archive = extractor.open(zip)) {
+            assertThatThrownBy(() -> extractor.extract(archive, entry(archive), target))
+                    .isInstanceOf(ZipException.class)
+                    .hasMessageContaining("more than the " + DECLARED_BYTES + " bytes declared");
+        }
+        assertThat(Files.size(target)).isLessThanOrEqualTo(DECLARED_BYTES);
+    }
+
+    @ParameterizedTest(name = "mmap from {0} bytes")
+    @ValueSource(longs = {0, Long.MAX_VALUE})
+    void storedEntryLargerThanDeclaredIsNotCopied(long mmapMinBytes) throws IOException {
+        EntryExtractor extractor = new EntryExtractor(BUFFER_BYTES, 4, mmapMinBytes);
+        Path zip = zip(ZipEntry.STORED);
+        patchCentralDirectory(zip, SIZE_FIELD, DECLARED_BYTES);
+        patchLocalHeader(zip, LOCAL_SIZE_FIELD, DECLARED_BYTES);
+        Path target = dir.resolve("out");
+
+        try (SpilledArchive archive = extractor.open(zip)) {
+            assertThatThrownBy(() -> extractor.extract(archive, entry(archive), target))
+                    .isInstanceOf(ZipException.class)
+                    .hasMessageContaining("more than the " + DECLARED_BYTES + " bytes declared");
+        }
+        assertThat(Files.size(target)).isZero();
+    }
+
+    @ParameterizedTest(name = "mmap from {0} bytes")
+    @ValueSource(longs = {0, Long.MAX_VALUE})
+    void entryWithWrongCrcIsRejected(long mmapMinBytes) throws IOException {
+        EntryExtractor extractor = new EntryExtractor(BUFFER_BYTES, 4, mmapMinBytes);
+        for (int method : new int[] {ZipEntry.DEFLATED, ZipEntry.STORED}) {
+            Path zip = zip(method);
+            patchCentralDirectory(zip, CRC_FIELD, 0x12345678);
+
+            try (SpilledArchive archive = extractor.open(zip)) {
+                assertThatThrownBy(() -> extractor.extract(archive, entry(archive), dir.resolve("out-" + method)))
+                        .isInstanceOf(ZipException.class)
+                        .hasMessageStartingWith("Invalid entry CRC for data.bin (expected 0x12345678");
+            }
+        }
+    }
+
+    private static ZipArchiveEntry entry(SpilledArchive archive) {
+        return archive.entries().get(0);
+    }
+
+    private static byte[] content() {
+        byte[] data = new byte[ENTRY_BYTES];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i * 31 + i / 7);
+        }
+        return data;
+    }
+
+    /** A single-entry archive holding {@link #content()} as data.bin. */
+    private Path zip(int method) throws IOException {
+        Path zip = Files.createTempFile(dir, "entry", ".zip");
+        byte[] data = content();
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(zip))) {
+            ZipEntry entry = new ZipEntry("data.bin");
+            entry.setMethod(method);
+            if (method == ZipEntry.STORED) {
+                CRC32 crc = new CRC32();
+                crc.update(data);
+                entry.setSize(data.length);
+                entry.setCompressedSize(data.length);
+                entry.setCrc(crc.getValue());
+            }
+            out.putNextEntry(entry);
+            out.write(data);
+            out.closeEntry();
+        }
+        return zip;
+    }
+
+    private static void patchCentralDirectory(Path zip, int field, int value) throws IOException {
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(zip)).order(ByteOrder.LITTLE_ENDIAN);
+        int end = bytes.limit() - 22; // no archive comment
+        assertThat(bytes.getInt(end)).isEqualTo(0x06054b50);
+        bytes.putInt(bytes.getInt(end + 16) + field, value);
+        Files.write(zip, bytes.array());
+    }
+
+    private static void patchLocalHeader(Path zip, int field, int value) throws IOException {
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(zip)).order(ByteOrder.LITTLE_ENDIAN);
+        assertThat(bytes.getInt(0)).isEqualTo(0x04034b50);
+        bytes.putInt(field, value);
+        Files.write(zip, bytes.array());
+    }
+}
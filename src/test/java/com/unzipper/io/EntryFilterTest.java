@@ -0,0 +1,153 @@
+package com.unzipper.io;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EntryFilterTest {
+
+    /**
+     * Rules as in application.properties: comma-separated lists, empty for none, max-bytes 0 for no limit.
+     * Expected is a prefix of the skip reason, empty when the entry is extracted.
+     */
+    @ParameterizedTest(name = "[{index}] {0} ({1} bytes, nested {2}) -> ''{9}''")
+    @CsvSource(delimiter = '|', nullValues = "null", emptyValue = "", textBlock = """
+            # Exclude globs without '/' match any name along the path, case-insensitively; patterns are reported lowercased
+            Thumbs.db                 | 10   | false | ''         | Thumbs.db   | ''     | ''   | 0   | 0   | excluded by thumbs.db
+            a/b/THUMBS.DB             | 10   | false | ''         | thumbs.db   | ''     | ''   | 0   | 0   | excluded by thumbs.db
+            __MACOSX/a/._report.pdf   | 10   | false | ''         | __MACOSX    | ''     | ''   | 0   | 0   | excluded by __macosx
+            __MACOSX/                 | 0    | false | ''         | __MACOSX    | ''     | ''   | 0   | 0   | excluded by __macosx
+            docs/notes.tmp            | 10   | false | ''         | *.tmp       | ''     | ''   | 0   | 0   | excluded by *.tmp
+            docs/tmp/notes.txt        | 10   | false | ''         | *.tmp       | ''     | ''   | 0   | 0   | ''
+            # Globs with '/' match the whole path only
+            docs/notes.tmp            | 10   | false | ''         | docs/*.tmp  | ''     | ''   | 0   | 0   | excluded by docs/*.tmp
+            x/docs/notes.tmp          | 10   | false | ''         | docs/*.tmp  | ''     | ''   | 0   | 0   | ''
+            docs/sub/notes.tmp        | 10   | false | ''         | docs/*.tmp  | ''     | ''   | 0   | 0   | ''
+            docs/sub/notes.tmp        | 10   | false | ''         | docs/**.tmp | ''     | ''   | 0   | 0   | excluded by docs/**.tmp
+            # '**/' needs at least one directory in front
+            notes.log                 | 10   | false | ''         | **/*.log    | ''     | ''   | 0   | 0   | ''
+            a/notes.log               | 10   | false | ''         | **/*.log    | ''     | ''   | 0   | 0   | excluded by **/*.log
+            # Several exclude globs: the first that matches is reported
+            a/Thumbs.db               | 10   | false | ''         | *.tmp,*.db  | ''     | ''   | 0   | 0   | excluded by *.db
+            # Exclude rules win over include rules
+            secret.pdf                | 10   | false | *.pdf      | secret*     | ''     | ''   | 0   | 0   | excluded by secret*
+            secret.pdf                | 10   | false | ''         | ''          | pdf    | pdf  | 0   | 0   | excluded extension pdf
+            # Include globs
+            scan.pdf                  | 10   | false | *.pdf      | ''          | ''     | ''   | 0   | 0   | ''
+            scans/SCAN.PDF            | 10   | false | *.pdf      | ''          | ''     | ''   | 0   | 0   | ''
+            scan.txt                  | 10   | false | *.pdf      | ''          | ''     | ''   | 0   | 0   | not included by name
+            # Extensions, with or without the dot, in any case
+            scan.PDF                  | 10   | false | ''         | ''          | .pdf   | ''   | 0   | 0   | ''
+            scan.txt                  | 10   | false | ''         | ''          | pdf,jpg | ''  | 0   | 0   | not included by extension
+            run.EXE                   | 10   | false | ''         | ''          | ''     | .exe | 0   | 0   | excluded extension exe
+            README                    | 10   | false | ''         | ''          | pdf    | ''   | 0   | 0   | not included by extension
+            # Sizes; -1 (unknown) is not judged
+            empty.txt                 | 0    | false | ''         | ''          | ''     | ''   | 1   | 0   | empty
+            tiny.txt                  | 5    | false | ''         | ''          | ''     | ''   | 10  | 0   | smaller than 10 bytes
+            edge.txt                  | 10   | false | ''         | ''          | ''     | ''   | 10  | 10  | ''
+            huge.txt                  | 11   | false | ''         | ''          | ''     | ''   | 0   | 10  | larger than 10 bytes
+            unknown.txt               | -1   | false | ''         | ''          | ''     | ''   | 10  | 10  | ''
+            # Directories and nested archives only answer to exclude globs
+            docs/                     | 0    | false | *.pdf      | ''          | pdf    | ''   | 1   | 0   | ''
+            inner.zip                 | 0    | true  | *.pdf      | ''          | pdf    | zip  | 1   | 0   | ''
+            a/inner.zip               | 99   | true  | ''         | a           | ''     | ''   | 0   | 10  | excluded by a
+            """)
+    void skipReason(String name, long size, boolean nested, String includeGlobs, String excludeGlobs,
+                    String includeExtensions, String excludeExtensions, long minBytes, long maxBytes, String expected) {
+        EntryFilter filter = new EntryFilter(true, includeGlobs, excludeGlobs, includeExtensions, excludeExtensions,
+                "", "", minBytes, maxBytes);
+
+        String reason = filter.skipReason(entry(name, size), nested);
+
+        if (expected.isEmpty()) {
+            assertThat(reason).isNull();
+        } else {
+            assertThat(reason).startsWith(expected);
+        }
+    }
+
+    @Test
+    void disabledFilterSkipsNothing() {
+        EntryFilter filter = new EntryFilter(false, "*.pdf", "*", "pdf", "txt", "image/png", "application/pdf", 100, 1);
+        assertThat(filter.skipReason(entry("a.txt", 0), false)).isNull();
+        assertThat(filter.sniffsContent()).isFalse();
+    }
+
+    @Test
+    void namesThePathMatcherCannotRepresentMatchNothing() {
+        EntryFilter filter = new EntryFilter(true, "", "*", "", "", "", "", 0, 0);
+        assertThat(filter.skipReason(entry("bad\u0000name.txt", 10), false)).isNull();
+    }
+
+    @Test
+    void contentTypesAreOnlySniffedWhenConfigured() {
+        assertThat(new EntryFilter(true, "", "", "", "", "", "", 0, 0).sniffsContent()).isFalse();
+        assertThat(new EntryFilter(true, "", "", "", "", "application/pdf", "", 0, 0).sniffsContent()).isTrue();
+        assertThat(new EntryFilter(true, "", "", "", "", "", "application/x-msdownload", 0, 0).sniffsContent()).isTrue();
+    }
+
+    @ParameterizedTest(name = "[{index}] {0}")
+    @CsvSource(delimiter = '|', textBlock = """
+            # Includes and excludes together: exclude wins
+            %PDF-1.7        | application/pdf          | application/pdf | excluded content type application/pdf
+            MZ\u0090        | application/pdf          | ''              | not included by content type application/x-msdownload
+            MZ\u0090        | ''                       | application/x-msdownload | excluded content type application/x-msdownload
+            hello           | application/octet-stream | ''              | ''
+            %PDF-1.7        | application/pdf          | ''              | ''
+            """)
+    void skipReasonFromContent(String head, String includeContentTypes, String excludeContentTypes, String expected) {
+        EntryFilter filter = new EntryFilter(true, "", "", "", "", includeContentTypes, excludeContentTypes, 0, 0);
+
+        String reason = filter.skipReason(head.getBytes(StandardCharsets.ISO_8859_1));
+
+        if (expected.isEmpty()) {
+            assertThat(reason).isNull();
+        } else {
+            assertThat(reason).isEqualTo(expected);
+        }
+    }
+
+    @ParameterizedTest(name = "[{index}] {1}")
+    @CsvSource(delimiter = '|', textBlock = """
+            25504446                 | application/pdf
+            89504e470d0a1a0a         | image/png
+            ffd8ffe0                 | image/jpeg
+            47494638                 | image/gif
+            49492a00                 | image/tiff
+            4d4d002a                 | image/tiff
+            424d                     | image/bmp
+            524946460000000057454250 | image/webp
+            524946460000000057415645 | application/octet-stream
+            504b0304                 | application/zip
+            d0cf11e0                 | application/x-ole-storage
+            7b5c727466               | application/rtf
+            4d5a                     | application/x-msdownload
+            7f454c46                 | application/x-elf
+            255044                   | application/octet-stream
+            ''                       | application/octet-stream
+            """)
+    void contentTypeFromMagicBytes(String hex, String expected) {
+        assertThat(EntryFilter.contentType(bytes(hex))).isEqualTo(expected);
+    }
+
+    private static ZipArchiveEntry entry(String name, long size) {
+        ZipArchiveEntry entry = new ZipArchiveEntry(name);
+        if (size >= 0) {
+            entry.setSize(size);
+        }
+        return entry;
+    }
+
+    private static byte[] bytes(String hex) {
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) Integer.parseInt(hex.substring(2 * i, 2 * i + 2), 16);
+        }
+        return bytes;
+    }
+}
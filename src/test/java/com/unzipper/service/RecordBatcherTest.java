@@ -0,0 +1,178 @@
+package com.unzipper.service;
+
+import com.unzipper.entity.KycDocumentUnzip;
+import com.unzipper.repository.KycDocumentUnzipRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RecordBatcherTest {
+
+    private static final long LONG_WINDOW_MS = 60_000;
+
+    private final KycDocumentUnzipRepository repository = mock(KycDocumentUnzipRepository.class);
+    // Document names per saveAll call, and of the records saved one by one
+    private final List<List<String>> batches = new CopyOnWriteArrayList<>();
+    private final List<String> singles = new CopyOnWriteArrayList<>();
+    private RecordBatcher batcher;
+
+    private void recordWrites() {
+        when(repository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<KycDocumentUnzip> records = invocation.getArgument(0);
+            List<String> names = new ArrayList<>();
+            records.forEach(r -> names.add(r.getDocumentName()));
+            batches.add(names);
+            return records;
+        });
+        when(repository.save(any())).thenAnswer(invocation -> {
+            KycDocumentUnzip record = invocation.getArgument(0);
+            singles.add(record.getDocumentName());
+            return record;
+        });
+    }
+
+    @AfterEach
+    void close() {
+        if (batcher != null) {
+            batcher.close();
+        }
+    }
+
+    @Test
+    void fullBatchIsWrittenWithoutWaitingForTheWindow() throws Exception {
+        recordWrites();
+        batcher = new RecordBatcher(repository, 3, LONG_WINDOW_MS);
+
+        List<CompletableFuture<Void>> futures = submit("a", "b", "c");
+
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get(5, TimeUnit.SECONDS);
+        assertThat(batches).containsExactly(List.of("a", "b", "c"));
+        assertThat(singles).isEmpty();
+    }
+
+    @Test
+    void recordsBeyondAFullBatchStartTheNextOne() throws Exception {
+        recordWrites();
+        batcher = new RecordBatcher(repository, 2, LONG_WINDOW_MS);
+
+        List<CompletableFuture<Void>> futures = submit("a", "b", "c");
+
+        CompletableFuture.allOf(futures.get(0), futures.get(1)).get(5, TimeUnit.SECONDS);
+        assertThat(batches).containsExactly(List.of("a", "b"));
+        assertThat(futures.get(2)).isNotDone();
+    }
+
+    @Test
+    void partialBatchIsWrittenWhenTheWindowExpires() throws Exception {
+        recordWrites();
+        batcher = new RecordBatcher(repository, 100, 300);
+
+        List<CompletableFuture<Void>> futures = submit("a", "b");
+        assertThat(futures.get(0)).isNotDone();
+
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get(5, TimeUnit.SECONDS);
+        assertThat(batches).containsExactly(List.of("a", "b"));
+    }
+
+    @Test
+    void windowOfAnEarlierBatchDoesNotFlushTheNextOne() throws Exception {
+        recordWrites();
+        batcher = new RecordBatcher(repository, 2, 300);
+
+        // Fills the first batch at once; its window timer still fires later
+        submit("a", "b");
+        Thread.sleep(100);
+        CompletableFuture<Void> c = submit("c").get(0);
+        Thread.sleep(250);
+        // Past the first batch's window, but only 250 ms into the second one
+        assertThat(c).isNotDone();
+
+        c.get(5, TimeUnit.SECONDS);
+        assertThat(batches).containsExactly(List.of("a", "b"), List.of("c"));
+    }
+
+    @Test
+    void batchSizeOneWritesEachRecordAtOnce() throws Exception {
+        recordWrites();
+        batcher = new RecordBatcher(repository, 1, LONG_WINDOW_MS);
+
+        submit("a").get(0).get(5, TimeUnit.SECONDS);
+        submit("b").get(0).get(5, TimeUnit.SECONDS);
+        assertThat(batches).containsExactly(List.of("a"), List.of("b"));
+    }
+
+    @Test
+    void failedBatchIsRetriedSinglyAndOnlyTheBadRecordFails() throws Exception {
+        RuntimeException recordFailure = new RuntimeException("constraint violation on b");
+        when(repository.saveAll(anyList())).thenThrow(new RuntimeException("constraint violation in batch"));
+        when(repository.save(any())).thenAnswer(invocation -> {
+            KycDocumentUnzip record = invocation.getArgument(0);
+            if ("b".equals(record.getDocumentName())) {
+                throw recordFailure;
+            }
+            singles.add(record.getDocumentName());
+            return record;
+        });
+        batcher = new RecordBatcher(repository, 3, LONG_WINDOW_MS);
+
+        List<CompletableFuture<Void>> futures = submit("a", "b", "c");
+
+        futures.get(0).get(5, TimeUnit.SECONDS);
+        futures.get(2).get(5, TimeUnit.SECONDS);
+        assertThatThrownBy(() -> futures.get(1).get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCause(recordFailure);
+        assertThat(singles).containsExactly("a", "c");
+    }
+
+    @Test
+    void everyWaiterSeesTheFailureWhenNoRecordCanBeSaved() {
+        RuntimeException databaseDown = new RuntimeException("connection refused");
+        when(repository.saveAll(anyList())).thenThrow(databaseDown);
+        when(repository.save(any())).thenThrow(databaseDown);
+        batcher = new RecordBatcher(repository, 2, LONG_WINDOW_MS);
+
+        for (CompletableFuture<Void> future : submit("a", "b")) {
+            assertThatThrownBy(() -> future.get(5, TimeUnit.SECONDS))
+                    .isInstanceOf(ExecutionException.class)
+                    .hasCause(databaseDown);
+        }
+    }
+
+    @Test
+    void closeFailsRecordsStillWaiting() {
+        recordWrites();
+        batcher = new RecordBatcher(repository, 100, LONG_WINDOW_MS);
+
+        CompletableFuture<Void> waiting = submit("a").get(0);
+        batcher.close();
+
+        assertThatThrownBy(() -> waiting.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(IllegalStateException.class);
+        assertThat(batches).isEmpty();
+    }
+
+    private List<CompletableFuture<Void>> submit(String... names) {
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (String name : names) {
+            KycDocumentUnzip record = new KycDocumentUnzip();
+            record.setDocumentName(name);
+            futures.add(batcher.submit(record));
+        }
+        return futures;
+    }
+}
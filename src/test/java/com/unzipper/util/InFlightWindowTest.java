@@ -0,0 +1,177 @@
+package com.unzipper.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+class InFlightWindowTest {
+
+    // Long enough for a blocked acquire to have started waiting
+    private static final long BLOCKED_MS = 200;
+
+    @Test
+    void admitsUpToTheLimitsWithoutBlocking() {
+        InFlightWindow window = new InFlightWindow(3, 100);
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            window.acquire(40);
+            window.acquire(40);
+            window.acquire(20);
+        });
+    }
+
+    @Test
+    void blocksOnEntryLimitUntilReleased() throws Exception {
+        InFlightWindow window = new InFlightWindow(2, 1000);
+        window.acquire(1);
+        window.acquire(1);
+
+        Acquirer third = Acquirer.start(window, 1);
+        assertThat(third.blocked()).isTrue();
+
+        window.release(1);
+        third.awaitAcquired();
+    }
+
+    @Test
+    void blocksOnByteLimitUntilEnoughIsReleased() throws Exception {
+        InFlightWindow window = new InFlightWindow(10, 100);
+        window.acquire(60);
+        window.acquire(30);
+
+        Acquirer next = Acquirer.start(window, 50);
+        assertThat(next.blocked()).isTrue();
+
+        // 30 + 50 fits, 60 + 30 + 50 did not
+        window.release(60);
+        next.awaitAcquired();
+    }
+
+    @Test
+    void releaseOfTooLittleKeepsWaiterBlocked() throws Exception {
+        InFlightWindow window = new InFlightWindow(10, 100);
+        window.acquire(60);
+        window.acquire(40);
+
+        Acquirer next = Acquirer.start(window, 50);
+        window.release(40);
+        assertThat(next.blocked()).isTrue();
+
+        window.release(60);
+        next.awaitAcquired();
+    }
+
+    @Test
+    void oversizeEntryIsAdmittedAloneWhenWindowIsEmpty() {
+        InFlightWindow window = new InFlightWindow(4, 100);
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> window.acquire(1000));
+    }
+
+    @Test
+    void oversizeEntryWaitsForWindowToDrain() throws Exception {
+        InFlightWindow window = new InFlightWindow(4, 100);
+        window.acquire(10);
+        window.acquire(10);
+
+        Acquirer oversize = Acquirer.start(window, 1000);
+        window.release(10);
+        assertThat(oversize.blocked()).isTrue();
+
+        window.release(10);
+        oversize.awaitAcquired();
+    }
+
+    @Test
+    void oversizeEntryBlocksOthersUntilReleased() throws Exception {
+        InFlightWindow window = new InFlightWindow(4, 100);
+        window.acquire(1000);
+
+        Acquirer small = Acquirer.start(window, 1);
+        assertThat(small.blocked()).isTrue();
+
+        window.release(1000);
+        small.awaitAcquired();
+    }
+
+    @Test
+    void zeroSizedEntriesCountTowardsEntryLimit() throws Exception {
+        InFlightWindow window = new InFlightWindow(1, 100);
+        window.acquire(0);
+
+        Acquirer next = Acquirer.start(window, 0);
+        assertThat(next.blocked()).isTrue();
+
+        window.release(0);
+        next.awaitAcquired();
+    }
+
+    @Test
+    void interruptedWaiterThrowsAndTakesNoSlot() throws Exception {
+        InFlightWindow window = new InFlightWindow(1, 100);
+        window.acquire(100);
+
+        Acquirer interrupted = Acquirer.start(window, 100);
+        assertThat(interrupted.blocked()).isTrue();
+        interrupted.thread.interrupt();
+        assertThat(interrupted.result.get(5, TimeUnit.SECONDS)).isInstanceOf(InterruptedException.class);
+
+        // Only the first entry is in flight: once it is released the window is empty again
+        window.release(100);
+        Acquirer next = Acquirer.start(window, 100);
+        next.awaitAcquired();
+    }
+
+    @Test
+    void releaseWakesAllWaitersThatFit() throws Exception {
+        InFlightWindow window = new InFlightWindow(3, 100);
+        window.acquire(100);
+
+        Acquirer first = Acquirer.start(window, 40);
+        Acquirer second = Acquirer.start(window, 40);
+        assertThat(first.blocked()).isTrue();
+        assertThat(second.blocked()).isTrue();
+
+        window.release(100);
+        first.awaitAcquired();
+        second.awaitAcquired();
+    }
+
+    /**
+     * An acquire on its own thread; completes with null once acquired, or with the exception it threw.
+     */
+    private static final class Acquirer {
+        final CompletableFuture<Throwable> result = new CompletableFuture<>();
+        final Thread thread;
+
+        private Acquirer(InFlightWindow window, long size) {
+            thread = new Thread(() -> {
+                try {
+                    window.acquire(size);
+                    result.complete(null);
+                } catch (Throwable t) {
+                    result.complete(t);
+                }
+            }, "acquirer-" + size);
+            thread.setDaemon(true);
+        }
+
+        static Acquirer start(InFlightWindow window, long size) {
+            Acquirer acquirer = new Acquirer(window, size);
+            acquirer.thread.start();
+            return acquirer;
+        }
+
+        boolean blocked() throws InterruptedException {
+            Thread.sleep(BLOCKED_MS);
+            return !result.isDone();
+        }
+
+        void awaitAcquired() throws Exception {
+            assertThat(result.get(5, TimeUnit.SECONDS)).isNull();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.unzipper.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TimeOrderedIdTest {
+
+    @Test
+    void idsAreVersion7WithTheIetfVariant() {
+        UUID id = UUID.fromString(TimeOrderedId.next());
+        assertThat(id.version()).isEqualTo(7);
+        assertThat(id.variant()).isEqualTo(2);
+    }
+
+    @Test
+    void timestampIsTheCurrentTime() {
+        long before = System.currentTimeMillis();
+        UUID id = UUID.fromString(TimeOrderedId.next());
+        long after = System.currentTimeMillis();
+        // May run ahead by the milliseconds borrowed when other tests made more than 4096 ids in one
+        assertThat(id.getMostSignificantBits() >>> 16).isBetween(before, after + 1000);
+    }
+
+    @Test
+    void consecutiveIdsAscendWithinAndAcrossMilliseconds() {
+        // Far more ids than milliseconds pass, so most share their millisecond with the previous one
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 50_000; i++) {
+            ids.add(TimeOrderedId.next());
+        }
+        int sameMillisecond = 0;
+        for (int i = 1; i < ids.size(); i++) {
+            UUID previous = UUID.fromString(ids.get(i - 1));
+            UUID current = UUID.fromString(ids.get(i));
+            assertThat(Long.compareUnsigned(current.getMostSignificantBits(), previous.getMostSignificantBits()))
+                    .as("id %d after %s", i, ids.get(i - 1))
+                    .isPositive();
+            // The key column is a string: its order has to agree
+            assertThat(ids.get(i)).isGreaterThan(ids.get(i - 1));
+            if (current.getMostSignificantBits() >>> 16 == previous.getMostSignificantBits() >>> 16) {
+                sameMillisecond++;
+            }
+        }
+        assertThat(sameMillisecond).isPositive();
+    }
+
+    @Test
+    void idsFromConcurrentThreadsAreUnique() throws Exception {
+        int threads = 4;
+        int perThread = 20_000;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Callable<List<String>>> tasks = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                tasks.add(() -> {
+                    List<String> ids = new ArrayList<>(perThread);
+                    for (int i = 0; i < perThread; i++) {
+                        ids.add(TimeOrderedId.next());
+                    }
+                    return ids;
+                });
+            }
+            Set<Long> prefixes = new HashSet<>();
+            for (Future<List<String>> result : pool.invokeAll(tasks)) {
+                List<String> ids = result.get();
+                for (int i = 0; i < ids.size(); i++) {
+                    // Millisecond and sequence alone are unique, regardless of the random bits
+                    assertThat(prefixes.add(UUID.fromString(ids.get(i)).getMostSignificantBits())).isTrue();
+                    if (i > 0) {
+                        assertThat(ids.get(i)).isGreaterThan(ids.get(i - 1));
+                    }
+                }
+            }
+            assertThat(prefixes).hasSize(threads * perThread);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,294 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * End-to-end throughput driver for the unzipper service.
+ *
+ * Single-file program, run without a build:
+ * <pre>
+ *   java tools/LoadDriver.java --base-url http://localhost:8080 \
+ *       --documentum-url http://localhost:8000 --seed-zip test_payload.zip \
+ *       --endpoint unzip_upload_save_doc --concurrency 8 --duration 60
+ * </pre>
+ *
+ * Endpoints: unzip_upload_save_doc, fetch_file_documentum, unzip, unzip_upload_doc.
+ * Reports requests, errors, files/sec, MB/sec and p50/p99 latency per endpoint.
+ */
+public class LoadDriver {
+
+    private static final Pattern FILE_SIZE = Pattern.compile("\"file_size\"\\s*:\\s*\"(\\d+)\"");
+    private static final Pattern DOC_ID = Pattern.compile("\"document_link_id\"\\s*:\\s*\"([^\"]+)\"");
+    private static final Pattern LEGACY_DOC_IDS = Pattern.compile("\"docIds\"\\s*:\\s*\\[([^\\]]*)\\]");
+
+    private final Map<String, String> options;
+    private final HttpClient http;
+    private final Map<String, Stats> stats = new ConcurrentHashMap<>();
+
+    LoadDriver(Map<String, String> options) {
+        this.options = options;
+        this.http = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(10))
+                .version(HttpClient.Version.HTTP_1_1)
+                .build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        options.put("base-url", "http://localhost:8080");
+        options.put("documentum-url", "http://localhost:8000");
+        options.put("endpoint", "unzip_upload_save_doc");
+        options.put("client-id", "LOAD_CLIENT");
+        options.put("concurrency", "4");
+        options.put("duration", "30");
+        options.put("requests", "0");
+        options.put("warmup", "5");
+        options.put("timeout", "300");
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--") || i + 1 >= args.length) {
+                System.err.println("Unexpected argument: " + args[i]);
+                System.exit(2);
+            }
+            options.put(args[i].substring(2), args[++i]);
+        }
+        new LoadDriver(options).run();
+    }
+
+    void run() throws Exception {
+        List<String> endpoints = Arrays.asList(options.get("endpoint").split(","));
+        List<String> ids = resolveDocumentIds();
+        Path zip = options.containsKey("zip") ? Path.of(options.get("zip"))
+                : options.containsKey("seed-zip") ? Path.of(options.get("seed-zip")) : null;
+
+        int concurrency = Integer.parseInt(options.get("concurrency"));
+        long warmupSeconds = Long.parseLong(options.get("warmup"));
+        long durationSeconds = Long.parseLong(options.get("duration"));
+        long maxRequests = Long.parseLong(options.get("requests"));
+
+        if (warmupSeconds > 0) {
+            System.out.printf("Warming up for %ds...%n", warmupSeconds);
+            drive(endpoints, ids, zip, concurrency, warmupSeconds, 0, false);
+            stats.clear();
+        }
+        System.out.printf("Driving %s with concurrency %d for %s...%n", endpoints, concurrency,
+                maxRequests > 0 ? maxRequests + " requests" : durationSeconds + "s");
+        long started = System.nanoTime();
+        drive(endpoints, ids, zip, concurrency, durationSeconds, maxRequests, true);
+        report((System.nanoTime() - started) / 1e9);
+    }
+
+    private void drive(List<String> endpoints, List<String> ids, Path zip, int concurrency,
+                       long durationSeconds, long maxRequests, boolean record) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(durationSeconds);
+        AtomicLong issued = new AtomicLong();
+        ExecutorService pool = Executors.newFixedThreadPool(concurrency);
+        for (int t = 0; t < concurrency; t++) {
+            pool.submit(() -> {
+                while (true) {
+                    long n = issued.getAndIncrement();
+                    if (maxRequests > 0 ? n >= maxRequests : System.nanoTime() >= deadline) {
+                        return;
+                    }
+                    String endpoint = endpoints.get((int) (n % endpoints.size()));
+                    String id = ids.isEmpty() ? null : ids.get((int) (n % ids.size()));
+                    Sample sample = execute(endpoint, id, zip);
+                    if (record) {
+                        stats.computeIfAbsent(endpoint, k -> new Stats()).add(sample);
+                    }
+                }
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+    }
+
+    private Sample execute(String endpoint, String documentLinkId, Path zip) {
+        String base = options.get("base-url");
+        String clientId = options.get("client-id");
+        long started = System.nanoTime();
+        try {
+            HttpRequest request;
+            switch (endpoint) {
+                case "unzip_upload_save_doc":
+                    request = HttpRequest.newBuilder(URI.create(base + "/unzip_upload_save_doc/" + clientId + "/" + documentLinkId))
+                            .GET().build();
+                    break;
+                case "fetch_file_documentum":
+                    request = HttpRequest.newBuilder(URI.create(base + "/fetch_file_documentum/" + documentLinkId))
+                            .GET().build();
+                    break;
+                case "unzip":
+                    request = multipart(URI.create(base + "/unzip"), zip);
+                    break;
+                case "unzip_upload_doc":
+                    request = multipart(URI.create(base + "/unzip_upload_doc/" + clientId), zip);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown endpoint: " + endpoint);
+            }
+            request = HttpRequest.newBuilder(request, (name, value) -> true)
+                    .timeout(Duration.ofSeconds(Long.parseLong(options.get("timeout"))))
+                    .build();
+            HttpResponse<byte[]> response = http.send(request, HttpResponse.BodyHandlers.ofByteArray());
+            long latency = System.nanoTime() - started;
+            byte[] body = response.body();
+            if (response.statusCode() >= 400) {
+                return new Sample(latency, false, 0, 0);
+            }
+            if (endpoint.equals("fetch_file_documentum")) {
+                return new Sample(latency, true, 1, body.length);
+            }
+            return countFiles(latency, new String(body, StandardCharsets.UTF_8));
+        } catch (Exception e) {
+            return new Sample(System.nanoTime() - started, false, 0, 0);
+        }
+    }
+
+    private Sample countFiles(long latency, String json) {
+        long files = 0;
+        long bytes = 0;
+        Matcher m = FILE_SIZE.matcher(json);
+        while (m.find()) {
+            files++;
+            bytes += Long.parseLong(m.group(1)) * 1024;
+        }
+        if (files == 0) {
+            // /unzip returns the legacy {docIds: [...], metadata: {...}} shape
+            Matcher legacy = LEGACY_DOC_IDS.matcher(json);
+            if (legacy.find() && !legacy.group(1).isBlank()) {
+                files = legacy.group(1).split(",").length;
+            }
+        }
+        return new Sample(latency, true, files, bytes);
+    }
+
+    private HttpRequest multipart(URI uri, Path zip) throws IOException {
+        if (zip == null) {
+            throw new IllegalArgumentException("--zip is required for multipart endpoints");
+        }
+        String boundary = UUID.randomUUID().toString().replace("-", "");
+        byte[] head = ("--" + boundary + "\r\nContent-Disposition: form-data; name=\"file\"; filename=\""
+                + zip.getFileName() + "\"\r\nContent-Type: application/zip\r\n\r\n").getBytes(StandardCharsets.UTF_8);
+        byte[] tail = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8);
+        byte[] content = Files.readAllBytes(zip);
+        return HttpRequest.newBuilder(uri)
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .POST(HttpRequest.BodyPublishers.ofByteArrays(List.of(head, content, tail)))
+                .build();
+    }
+
+    private List<String> resolveDocumentIds() throws Exception {
+        List<String> ids = new ArrayList<>();
+        if (options.containsKey("ids")) {
+            String value = options.get("ids");
+            if (value.startsWith("@")) {
+                for (String line : Files.readAllLines(Path.of(value.substring(1)))) {
+                    if (!line.isBlank()) {
+                        ids.add(line.trim());
+                    }
+                }
+            } else {
+                ids.addAll(Arrays.asList(value.split(",")));
+            }
+        }
+        if (options.containsKey("seed-zip")) {
+            ids.add(seed(Path.of(options.get("seed-zip"))));
+        }
+        return ids;
+    }
+
+    /**
+     * Upload a zip to the Documentum stand-in so it can be fetched back by id.
+     * The stand-in must run with --keep-uploads for this to work.
+     */
+    private String seed(Path zip) throws Exception {
+        String content = java.util.Base64.getEncoder().encodeToString(Files.readAllBytes(zip));
+        String body = "{\"filename\": \"" + zip.getFileName() + "\", \"content\": \"" + content + "\"}";
+        HttpRequest request = HttpRequest.newBuilder(URI.create(options.get("documentum-url") + "/upload"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+        Matcher m = DOC_ID.matcher(response.body());
+        if (response.statusCode() != 200 || !m.find()) {
+            throw new IllegalStateException("Seeding failed: " + response.statusCode() + " " + response.body());
+        }
+        System.out.printf("Seeded %s as document_link_id %s%n", zip, m.group(1));
+        return m.group(1);
+    }
+
+    private void report(double elapsedSeconds) {
+        System.out.printf("%n%-24s %9s %7s %10s %9s %10s %10s%n",
+                "Endpoint", "Requests", "Errors", "Files/s", "MB/s", "p50 (ms)", "p99 (ms)");
+        System.out.println("-".repeat(84));
+        stats.forEach((endpoint, s) -> System.out.printf("%-24s %9d %7d %10.1f %9.2f %10.1f %10.1f%n",
+                endpoint, s.count(), s.errors.get(),
+                s.files.get() / elapsedSeconds,
+                s.bytes.get() / elapsedSeconds / (1024 * 1024),
+                s.percentile(0.50), s.percentile(0.99)));
+        System.out.printf("%nElapsed: %.1fs%n", elapsedSeconds);
+    }
+
+    private static final class Sample {
+        final long latencyNanos;
+        final boolean ok;
+        final long files;
+        final long bytes;
+
+        Sample(long latencyNanos, boolean ok, long files, long bytes) {
+            this.latencyNanos = latencyNanos;
+            this.ok = ok;
+            this.files = files;
+            this.bytes = bytes;
+        }
+    }
+
+    private static final class Stats {
+        final List<Long> latencies = new ArrayList<>();
+        final AtomicLong errors = new AtomicLong();
+        final AtomicLong files = new AtomicLong();
+        final AtomicLong bytes = new AtomicLong();
+
+        synchronized void add(Sample sample) {
+            latencies.add(sample.latencyNanos);
+            if (!sample.ok) {
+                errors.incrementAndGet();
+            }
+            files.addAndGet(sample.files);
+            bytes.addAndGet(sample.bytes);
+        }
+
+        synchronized int count() {
+            return latencies.size();
+        }
+
+        synchronized double percentile(double p) {
+            if (latencies.isEmpty()) {
+                return 0;
+            }
+            List<Long> sorted = new ArrayList<>(latencies);
+            sorted.sort(null);
+            int index = (int) Math.ceil(p * sorted.size()) - 1;
+            return sorted.get(Math.max(0, index)) / 1e6;
+        }
+    }
+}